@@ -0,0 +1,22 @@
+package org.chitsa.orderservice.benchmark;
+
+import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class OrderFixtures {
+    static final String CUSTOMER_ID = "user_6f1c2d0e-8a4b-4d3e-9b7a-2c5f1e0d9a88";
+
+    private OrderFixtures() {
+    }
+
+    static OrderRequestDto orderRequest(int itemCount) {
+        List<OrderItemDto> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItemDto("Product " + i, 1 + i % 5, 9.99 + i % 100));
+        }
+        return new OrderRequestDto(CUSTOMER_ID, items, null);
+    }
+}
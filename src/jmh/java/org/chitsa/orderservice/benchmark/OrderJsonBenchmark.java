@@ -0,0 +1,90 @@
+package org.chitsa.orderservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The request scales by item count; the response side is a list of that many orders, as a page would return.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderJsonBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int itemCount;
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+    private OrderRequestDto orderRequestDto;
+    private List<OrderResponseDto> orderResponseDtos;
+    private String requestJson;
+    private String responseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TypeReference<List<OrderResponseDto>> responseListType = new TypeReference<>() {
+        };
+        requestWriter = objectMapper.writerFor(OrderRequestDto.class);
+        requestReader = objectMapper.readerFor(OrderRequestDto.class);
+        responseWriter = objectMapper.writerFor(responseListType);
+        responseReader = objectMapper.readerFor(responseListType);
+
+        OrderDtoMapper orderDtoMapper = new OrderDtoMapper();
+        orderRequestDto = OrderFixtures.orderRequest(itemCount);
+        Order order = orderDtoMapper.toOrder(orderRequestDto, OrderFixtures.CUSTOMER_ID);
+        orderResponseDtos = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            orderResponseDtos.add(orderDtoMapper.toOrderResponseDto(order));
+        }
+        requestJson = requestWriter.writeValueAsString(orderRequestDto);
+        responseJson = responseWriter.writeValueAsString(orderResponseDtos);
+    }
+
+    @Benchmark
+    public String serializeOrderRequest() throws JsonProcessingException {
+        return requestWriter.writeValueAsString(orderRequestDto);
+    }
+
+    @Benchmark
+    public OrderRequestDto deserializeOrderRequest() throws JsonProcessingException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public String serializeOrderResponses() throws JsonProcessingException {
+        return responseWriter.writeValueAsString(orderResponseDtos);
+    }
+
+    @Benchmark
+    public List<OrderResponseDto> deserializeOrderResponses() throws JsonProcessingException {
+        return responseReader.readValue(responseJson);
+    }
+}
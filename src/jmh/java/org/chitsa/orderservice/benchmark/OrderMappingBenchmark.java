@@ -0,0 +1,66 @@
+package org.chitsa.orderservice.benchmark;
+
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int itemCount;
+
+    private OrderDtoMapper orderDtoMapper;
+    private OrderRequestDto orderRequestDto;
+    private Order order;
+    private Order orderWithoutStoredTotal;
+
+    @Setup
+    public void setUp() {
+        orderDtoMapper = new OrderDtoMapper();
+        orderRequestDto = OrderFixtures.orderRequest(itemCount);
+        order = orderDtoMapper.toOrder(orderRequestDto, OrderFixtures.CUSTOMER_ID);
+        orderWithoutStoredTotal = new Order(OrderFixtures.CUSTOMER_ID, order.getItems(), null);
+    }
+
+    @Benchmark
+    public Order toOrder() {
+        return orderDtoMapper.toOrder(orderRequestDto, OrderFixtures.CUSTOMER_ID);
+    }
+
+    @Benchmark
+    public OrderResponseDto toOrderResponseDto() {
+        return orderDtoMapper.toOrderResponseDto(order);
+    }
+
+    // Read path for orders written before totals were stored.
+    @Benchmark
+    public OrderResponseDto toOrderResponseDtoWithoutStoredTotal() {
+        return orderDtoMapper.toOrderResponseDto(orderWithoutStoredTotal);
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalAmount() {
+        return orderDtoMapper.calculateTotalAmount(order.getItems());
+    }
+}
@@ -0,0 +1,44 @@
+package org.chitsa.orderservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.validator.OrderValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderValidationBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int itemCount;
+
+    private OrderValidator orderValidator;
+    private OrderRequestDto orderRequestDto;
+
+    @Setup
+    public void setUp() {
+        orderValidator = new OrderValidator(new SimpleMeterRegistry());
+        orderRequestDto = OrderFixtures.orderRequest(itemCount);
+    }
+
+    @Benchmark
+    public void validateOrderRequest() {
+        orderValidator.validateOrderRequest(orderRequestDto, OrderFixtures.CUSTOMER_ID);
+    }
+}
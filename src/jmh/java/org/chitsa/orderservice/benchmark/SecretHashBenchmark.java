@@ -0,0 +1,54 @@
+package org.chitsa.orderservice.benchmark;
+
+import org.chitsa.orderservice.security.SecretHashCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Compares the per-login SECRET_HASH cost of keying a new Mac every time against cloning a pre-keyed one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SecretHashBenchmark {
+    private static final String CLIENT_ID = "4example0client0id0000000";
+    private static final String CLIENT_SECRET = "example0client0secret0000000000000000000000000000000";
+    private static final String USERNAME = OrderFixtures.CUSTOMER_ID;
+
+    private SecretHashCalculator secretHashCalculator;
+
+    @Setup
+    public void setUp() {
+        secretHashCalculator = new SecretHashCalculator(CLIENT_ID, CLIENT_SECRET);
+    }
+
+    @Benchmark
+    public String keyNewMacPerLogin() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(CLIENT_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update(USERNAME.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(mac.doFinal(CLIENT_ID.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String clonePreKeyedMac() {
+        return secretHashCalculator.calculate(USERNAME);
+    }
+}
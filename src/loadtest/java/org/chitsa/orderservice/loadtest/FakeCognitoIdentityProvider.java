@@ -0,0 +1,195 @@
+package org.chitsa.orderservice.loadtest;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.cognitoidp.AbstractAWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminDeleteUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminDeleteUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminEnableUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminEnableUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminInitiateAuthRequest;
+import com.amazonaws.services.cognitoidp.model.AdminInitiateAuthResult;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordRequest;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordResult;
+import com.amazonaws.services.cognitoidp.model.AuthenticationResultType;
+import com.amazonaws.services.cognitoidp.model.ListUsersRequest;
+import com.amazonaws.services.cognitoidp.model.ListUsersResult;
+import com.amazonaws.services.cognitoidp.model.NotAuthorizedException;
+import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
+import com.amazonaws.services.cognitoidp.model.UserType;
+import com.amazonaws.services.cognitoidp.model.UsernameExistsException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// In-memory user pool covering the calls the user services make, with a fixed latency
+// per call. Async calls run the synchronous ones on virtual threads.
+public class FakeCognitoIdentityProvider extends AbstractAWSCognitoIdentityProviderAsync {
+    private static final int DEFAULT_PAGE_SIZE = 60;
+
+    private final ConcurrentSkipListMap<String, String> passwordsByUsername = new ConcurrentSkipListMap<>();
+    private final LoadTestTokenIssuer tokenIssuer;
+    private final Duration latency;
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FakeCognitoIdentityProvider(LoadTestTokenIssuer tokenIssuer, Duration latency) {
+        this.tokenIssuer = tokenIssuer;
+        this.latency = latency;
+    }
+
+    @Override
+    public AdminCreateUserResult adminCreateUser(AdminCreateUserRequest request) {
+        simulateLatency();
+        if (passwordsByUsername.putIfAbsent(request.getUsername(), request.getTemporaryPassword()) != null) {
+            throw new UsernameExistsException("User already exists: " + request.getUsername());
+        }
+        return new AdminCreateUserResult().withUser(new UserType().withUsername(request.getUsername()).withEnabled(true));
+    }
+
+    @Override
+    public AdminEnableUserResult adminEnableUser(AdminEnableUserRequest request) {
+        simulateLatency();
+        requireUser(request.getUsername());
+        return new AdminEnableUserResult();
+    }
+
+    @Override
+    public AdminSetUserPasswordResult adminSetUserPassword(AdminSetUserPasswordRequest request) {
+        simulateLatency();
+        requireUser(request.getUsername());
+        passwordsByUsername.put(request.getUsername(), request.getPassword());
+        return new AdminSetUserPasswordResult();
+    }
+
+    @Override
+    public AdminDeleteUserResult adminDeleteUser(AdminDeleteUserRequest request) {
+        simulateLatency();
+        if (passwordsByUsername.remove(request.getUsername()) == null) {
+            throw new UserNotFoundException("User does not exist.");
+        }
+        return new AdminDeleteUserResult();
+    }
+
+    @Override
+    public Future<AdminCreateUserResult> adminCreateUserAsync(
+            AdminCreateUserRequest request, AsyncHandler<AdminCreateUserRequest, AdminCreateUserResult> asyncHandler) {
+        return submit(request, asyncHandler, this::adminCreateUser);
+    }
+
+    @Override
+    public Future<AdminEnableUserResult> adminEnableUserAsync(
+            AdminEnableUserRequest request, AsyncHandler<AdminEnableUserRequest, AdminEnableUserResult> asyncHandler) {
+        return submit(request, asyncHandler, this::adminEnableUser);
+    }
+
+    @Override
+    public Future<AdminSetUserPasswordResult> adminSetUserPasswordAsync(
+            AdminSetUserPasswordRequest request,
+            AsyncHandler<AdminSetUserPasswordRequest, AdminSetUserPasswordResult> asyncHandler) {
+        return submit(request, asyncHandler, this::adminSetUserPassword);
+    }
+
+    @Override
+    public Future<AdminDeleteUserResult> adminDeleteUserAsync(
+            AdminDeleteUserRequest request, AsyncHandler<AdminDeleteUserRequest, AdminDeleteUserResult> asyncHandler) {
+        return submit(request, asyncHandler, this::adminDeleteUser);
+    }
+
+    @Override
+    public Future<AdminGetUserResult> adminGetUserAsync(
+            AdminGetUserRequest request, AsyncHandler<AdminGetUserRequest, AdminGetUserResult> asyncHandler) {
+        return submit(request, asyncHandler, this::adminGetUser);
+    }
+
+    @Override
+    public void shutdown() {
+        asyncExecutor.shutdown();
+    }
+
+    @Override
+    public AdminGetUserResult adminGetUser(AdminGetUserRequest request) {
+        simulateLatency();
+        requireUser(request.getUsername());
+        return new AdminGetUserResult().withUsername(request.getUsername()).withEnabled(true);
+    }
+
+    @Override
+    public AdminInitiateAuthResult adminInitiateAuth(AdminInitiateAuthRequest request) {
+        simulateLatency();
+        String username = request.getAuthParameters().get("USERNAME");
+        String password = passwordsByUsername.get(username);
+        if (password == null || !password.equals(request.getAuthParameters().get("PASSWORD"))) {
+            throw new NotAuthorizedException("Incorrect username or password.");
+        }
+        String token = tokenIssuer.issue(username);
+        return new AdminInitiateAuthResult().withAuthenticationResult(new AuthenticationResultType()
+                .withAccessToken(token)
+                .withIdToken(token)
+                .withRefreshToken(token));
+    }
+
+    @Override
+    public ListUsersResult listUsers(ListUsersRequest request) {
+        simulateLatency();
+        int pageSize = request.getLimit() != null ? request.getLimit() : DEFAULT_PAGE_SIZE;
+        Map<String, String> remaining = request.getPaginationToken() == null
+                ? passwordsByUsername
+                : passwordsByUsername.tailMap(request.getPaginationToken(), false);
+        List<UserType> page = remaining.keySet().stream()
+                .limit(pageSize)
+                .map(username -> new UserType().withUsername(username).withEnabled(true))
+                .collect(Collectors.toList());
+        String lastUsername = page.isEmpty() ? null : page.get(page.size() - 1).getUsername();
+        String paginationToken = lastUsername != null && passwordsByUsername.higherKey(lastUsername) != null
+                ? lastUsername
+                : null;
+        return new ListUsersResult().withUsers(page).withPaginationToken(paginationToken);
+    }
+
+    private <Q extends AmazonWebServiceRequest, R> Future<R> submit(Q request, AsyncHandler<Q, R> asyncHandler,
+                                                                   Function<Q, R> operation) {
+        return asyncExecutor.submit(() -> {
+            R result;
+            try {
+                result = operation.apply(request);
+            } catch (RuntimeException ex) {
+                if (asyncHandler != null) {
+                    asyncHandler.onError(ex);
+                }
+                throw ex;
+            }
+            if (asyncHandler != null) {
+                asyncHandler.onSuccess(request, result);
+            }
+            return result;
+        });
+    }
+
+    private void requireUser(String username) {
+        if (!passwordsByUsername.containsKey(username)) {
+            throw new UserNotFoundException("User does not exist.");
+        }
+    }
+
+    private void simulateLatency() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
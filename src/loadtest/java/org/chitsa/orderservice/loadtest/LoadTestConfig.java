@@ -0,0 +1,20 @@
+package org.chitsa.orderservice.loadtest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    // Serves both the blocking and the async Cognito client.
+    @Bean
+    public FakeCognitoIdentityProvider cognitoClient(LoadTestTokenIssuer loadTestTokenIssuer,
+                                                     @Value("${loadtest.cognito.latency:PT0.05S}") Duration latency) {
+        return new FakeCognitoIdentityProvider(loadTestTokenIssuer, latency);
+    }
+}
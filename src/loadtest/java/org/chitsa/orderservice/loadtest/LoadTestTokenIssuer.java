@@ -0,0 +1,74 @@
+package org.chitsa.orderservice.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+// Stands in for the Cognito issuer: signs tokens with a key generated at startup and publishes its JWK set.
+@RestController
+@Profile("loadtest")
+@RequestMapping("/loadtest")
+public class LoadTestTokenIssuer {
+    private static final String ERROR_SIGNING_TOKEN = "Error signing load-test token";
+
+    private final RSAKey signingKey;
+    private final JWSSigner signer;
+    private final String issuerUri;
+    private final Duration tokenLifetime;
+
+    public LoadTestTokenIssuer(@Value("${spring.security.oauth2.client.provider.app1-provider.issuer-uri}") String issuerUri,
+                               @Value("${loadtest.token-lifetime:PT1H}") Duration tokenLifetime) throws JOSEException {
+        this.signingKey = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        this.signer = new RSASSASigner(signingKey);
+        this.issuerUri = issuerUri;
+        this.tokenLifetime = tokenLifetime;
+    }
+
+    @GetMapping("/jwks.json")
+    public Map<String, Object> jwkSet() {
+        return new JWKSet(signingKey.toPublicJWK()).toJSONObject();
+    }
+
+    @PostMapping("/token")
+    public Map<String, String> token(@RequestParam("subject") String subject) {
+        return Map.of("accessToken", issue(subject));
+    }
+
+    public String issue(String subject) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuerUri)
+                .subject(subject)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(tokenLifetime)))
+                .claim("token_use", "access")
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(ERROR_SIGNING_TOKEN, e);
+        }
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,35 @@
+package org.chitsa.orderservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Caffeine is the default provider; spring.cache.type switches to another one, or to none.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String ORDERS_CACHE = "orders";
+    public static final String ORDER_ITEMS_CACHE = "order-items";
+    public static final String CUSTOMER_ORDERS_CACHE = "customer-orders";
+    public static final String IDEMPOTENCY_KEYS_CACHE = "idempotency-keys";
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> orderCacheManagerCustomizer(
+            @Value("${orders.cache.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}") String cacheSpec,
+            @Value("${orders.cache.order-spec:maximumSize=10000,expireAfterWrite=30s,recordStats}") String orderCacheSpec) {
+        return cacheManager -> {
+            cacheManager.setCacheSpecification(cacheSpec);
+            cacheManager.setCacheNames(List.of(CUSTOMER_ORDERS_CACHE, IDEMPOTENCY_KEYS_CACHE));
+            // A delete only evicts on the instance that handled it, so the lifetime of these entries is how long
+            // another instance can go on returning a deleted order.
+            cacheManager.registerCustomCache(ORDERS_CACHE, Caffeine.from(orderCacheSpec).build());
+            cacheManager.registerCustomCache(ORDER_ITEMS_CACHE, Caffeine.from(orderCacheSpec).build());
+        };
+    }
+}
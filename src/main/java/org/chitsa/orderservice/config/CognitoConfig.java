@@ -1,32 +1,104 @@
 package org.chitsa.orderservice.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.retry.PredefinedBackoffStrategies;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsyncClientBuilder;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderClientBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.chitsa.orderservice.metrics.CognitoRequestMetricsHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Configuration
+@Profile("!loadtest")
 public class CognitoConfig {
 
     private final String region;
     private final BasicAWSCredentials awsCredentials;
+    private final int maxConnections;
+    private final Duration connectionTimeout;
+    private final Duration requestTimeout;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aws.cognito.async.max-concurrency:50}")
+    private int asyncMaxConcurrency;
+
+    @Value("${aws.cognito.retry.max-error-retry:5}")
+    private int maxErrorRetry;
+
+    @Value("${aws.cognito.retry.base-delay:PT0.1S}")
+    private Duration retryBaseDelay;
+
+    @Value("${aws.cognito.retry.max-backoff:PT5S}")
+    private Duration retryMaxBackoff;
 
     @Autowired
     public CognitoConfig(@Value("${aws.cognito.region.static}") String region,
-                         BasicAWSCredentials awsCredentials) {
+                         BasicAWSCredentials awsCredentials,
+                         @Value("${aws.cognito.max-connections:50}") int maxConnections,
+                         @Value("${aws.cognito.connection-timeout:PT10S}") Duration connectionTimeout,
+                         @Value("${aws.cognito.request-timeout:PT30S}") Duration requestTimeout,
+                         MeterRegistry meterRegistry) {
         this.region = region;
         this.awsCredentials = awsCredentials;
+        this.maxConnections = maxConnections;
+        this.connectionTimeout = connectionTimeout;
+        this.requestTimeout = requestTimeout;
+        this.meterRegistry = meterRegistry;
     }
 
+    // The async client below also implements AWSCognitoIdentityProvider, so this one is the default for injection.
     @Bean
+    @Primary
     public AWSCognitoIdentityProvider cognitoClient() {
         return AWSCognitoIdentityProviderClientBuilder.standard()
                 .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
+                .withClientConfiguration(clientConfiguration())
+                .withRequestHandlers(new CognitoRequestMetricsHandler(meterRegistry))
                 .withRegion(region)
                 .build();
     }
+
+    // Runs each call on a fixed pool, so at most asyncMaxConcurrency sign-up calls reach Cognito at once.
+    @Bean
+    public AWSCognitoIdentityProviderAsync cognitoAsyncClient() {
+        return AWSCognitoIdentityProviderAsyncClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(awsCredentials))
+                .withClientConfiguration(clientConfiguration())
+                .withRequestHandlers(new CognitoRequestMetricsHandler(meterRegistry))
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(asyncMaxConcurrency,
+                        new CustomizableThreadFactory("cognito-async-")))
+                .withRegion(region)
+                .build();
+    }
+
+    // With virtual threads the HTTP connection pool, not the request thread pool, bounds concurrent Cognito calls.
+    // Throttled and 5xx responses are retried with full-jitter exponential backoff so bursts spread out instead of
+    // retrying in lockstep.
+    private ClientConfiguration clientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout((int) connectionTimeout.toMillis())
+                .withRequestTimeout((int) requestTimeout.toMillis())
+                .withRetryPolicy(new RetryPolicy(
+                        PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                        new PredefinedBackoffStrategies.FullJitterBackoffStrategy(
+                                (int) retryBaseDelay.toMillis(), (int) retryMaxBackoff.toMillis()),
+                        maxErrorRetry,
+                        true));
+    }
 }
@@ -0,0 +1,20 @@
+package org.chitsa.orderservice.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+// Defaults for the actuator endpoints and histograms live in metrics.properties; application properties override them.
+// Mongo command latency and connection pool metrics are registered by Spring Boot once the actuator is present.
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    // Enables @Timed on the service classes.
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
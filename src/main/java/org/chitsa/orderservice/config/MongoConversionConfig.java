@@ -0,0 +1,16 @@
+package org.chitsa.orderservice.config;
+
+import org.chitsa.orderservice.mapping.OrderItemConverters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+// Shared by the blocking and reactive templates, and by every partition template.
+@Configuration
+public class MongoConversionConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(OrderItemConverters.converters());
+    }
+}
@@ -0,0 +1,55 @@
+package org.chitsa.orderservice.config;
+
+import org.chitsa.orderservice.model.IdempotencyRecord;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.repo.OrderPartition;
+import org.chitsa.orderservice.repo.OrderPartitionRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+
+// Spring Data no longer creates indexes automatically, so the ones declared on the models are ensured here.
+@Configuration
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+    private final OrderPartitionRouter partitionRouter;
+
+    @Value("${orders.idempotency.ttl:PT24H}")
+    private Duration idempotencyKeyTtl;
+
+    @Autowired
+    public MongoIndexConfig(MongoTemplate mongoTemplate, MongoMappingContext mongoMappingContext,
+                            OrderPartitionRouter partitionRouter) {
+        this.mongoTemplate = mongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+        this.partitionRouter = partitionRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        // Every order partition gets the indexes declared on Order.
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (OrderPartition partition : partitionRouter.all()) {
+            IndexOperations indexOperations = partition.getTemplate().indexOps(partition.getCollection());
+            indexResolver.resolveIndexFor(Order.class).forEach(indexOperations::ensureIndex);
+        }
+        // The TTL comes from configuration, so this index is not declared on the model.
+        mongoTemplate.indexOps(IdempotencyRecord.class).ensureIndex(new Index()
+                .on("createdAt", Sort.Direction.ASC)
+                .named("created_at_ttl")
+                .expire(idempotencyKeyTtl));
+    }
+}
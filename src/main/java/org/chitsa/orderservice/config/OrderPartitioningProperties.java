@@ -0,0 +1,79 @@
+package org.chitsa.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Bound from orders.partitioning.*; a list of partitions does not fit @Value, so this one uses property binding.
+// ring and previousRing hold partition names; an empty ring means every configured partition.
+@ConfigurationProperties(prefix = "orders.partitioning")
+public class OrderPartitioningProperties {
+    private List<Partition> partitions = new ArrayList<>();
+    private List<String> ring = new ArrayList<>();
+    private List<String> previousRing = new ArrayList<>();
+    private int virtualNodes = 128;
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(List<Partition> partitions) {
+        this.partitions = partitions;
+    }
+
+    public List<String> getRing() {
+        return ring;
+    }
+
+    public void setRing(List<String> ring) {
+        this.ring = ring;
+    }
+
+    public List<String> getPreviousRing() {
+        return previousRing;
+    }
+
+    public void setPreviousRing(List<String> previousRing) {
+        this.previousRing = previousRing;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public static class Partition {
+        private String name;
+        // Optional; without one the partition lives in the application's database.
+        private String uri;
+        private String collection = "orders";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public void setUri(String uri) {
+            this.uri = uri;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public void setCollection(String collection) {
+            this.collection = collection;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.chitsa.orderservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.chitsa.orderservice.outbox.FileOrderEventSink;
+import org.chitsa.orderservice.outbox.LoggingOrderEventSink;
+import org.chitsa.orderservice.outbox.OrderEventSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+// Transactions and the event sink are only set up when the outbox is enabled, since they need a replica set.
+// orders.outbox.sink picks a built-in sink; any other value expects an OrderEventSink bean, e.g. for a broker.
+@Configuration
+@ConditionalOnProperty(name = "orders.outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory mongoDatabaseFactory) {
+        return new MongoTransactionManager(mongoDatabaseFactory);
+    }
+
+    @Bean
+    public TransactionTemplate transactionTemplate(MongoTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "orders.outbox.sink", havingValue = "file")
+    public OrderEventSink fileOrderEventSink(@Value("${orders.outbox.file.path:order-events.ndjson}") Path path,
+                                            ObjectMapper objectMapper) {
+        return new FileOrderEventSink(path, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "orders.outbox.sink", havingValue = "log", matchIfMissing = true)
+    public OrderEventSink loggingOrderEventSink() {
+        return new LoggingOrderEventSink();
+    }
+}
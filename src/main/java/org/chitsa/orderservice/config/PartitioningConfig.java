@@ -0,0 +1,9 @@
+package org.chitsa.orderservice.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(OrderPartitioningProperties.class)
+public class PartitioningConfig {
+}
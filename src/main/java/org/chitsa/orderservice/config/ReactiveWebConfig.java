@@ -0,0 +1,51 @@
+package org.chitsa.orderservice.config;
+
+import org.chitsa.orderservice.controller.ReactiveOrderHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+// Active with spring.main.web-application-type=reactive (the "reactive" profile).
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    @Value("${orders.reactive.blocking-concurrency-limit:200}")
+    private int blockingConcurrencyLimit;
+
+    // Tomcat is also on the classpath and would otherwise be picked first; Netty gives the event-loop model.
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // The unbounded stream gets its own path: /customer-orders is the paged, conditional list on the servlet stack.
+    @Bean
+    public RouterFunction<ServerResponse> reactiveOrderRoutes(ReactiveOrderHandler reactiveOrderHandler) {
+        return route(POST("/api/orders/create"), reactiveOrderHandler::createNewOrder)
+                .andRoute(GET("/api/orders/customer-orders/stream"), reactiveOrderHandler::streamCustomerOrders)
+                .andRoute(GET("/api/orders/details/{orderId}"), reactiveOrderHandler::getOrderDetails)
+                .andRoute(DELETE("/api/orders/delete/{orderId}"), reactiveOrderHandler::removeOrder);
+    }
+
+    // Annotated controllers with blocking calls, such as the Cognito-backed user API, run off the event loop.
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("blocking-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(blockingConcurrencyLimit);
+        configurer.setExecutor(executor);
+    }
+}
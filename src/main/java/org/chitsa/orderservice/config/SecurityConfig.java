@@ -1,7 +1,15 @@
 package org.chitsa.orderservice.config;
 
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.chitsa.orderservice.security.CachingJwtDecoder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.config.Customizer;
@@ -9,24 +17,51 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig {
     @Value("${spring.security.oauth2.client.provider.app1-provider.issuer-uri}")
     private String issuerUri;
 
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+
+    @Value("${orders.security.jwk-set.cache-ttl:PT15M}")
+    private Duration jwkSetCacheTtl;
+
+    @Value("${orders.security.jwk-set.refresh-timeout:PT5S}")
+    private Duration jwkSetRefreshTimeout;
+
+    @Value("${orders.security.jwk-set.refresh-ahead:PT1M}")
+    private Duration jwkSetRefreshAhead;
+
+    @Value("${orders.security.token-cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+
+    @Value("${orders.security.admin-authority:SCOPE_users/admin}")
+    private String adminAuthority;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/users/signUp").permitAll() // Allow account creation for all
                         .requestMatchers("/api/users/login").permitAll() // Allow account creation for all
+                        .requestMatchers("/api/users/signUp/*/status").permitAll() // Sign-up status, before the user can log in
                         .requestMatchers("/api/health").permitAll() // Health check accessible
                         .requestMatchers("/swagger-ui/**").permitAll() // Swagger UI accessible
                         .requestMatchers("/v3/api-docs/**").permitAll() // Allow access to OpenAPI docs
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Scraped by Prometheus
+                        .requestMatchers("/api/users/exists").hasAuthority(adminAuthority) // Admin tooling only
                         .requestMatchers("/api/**").authenticated() // Secure all other endpoints
                         .anyRequest().permitAll()
                 )
@@ -34,9 +69,23 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // Verifies tokens locally against the issuer's JWK set, which is fetched lazily, refreshed in the
+    // background before it expires and re-fetched when a token is signed with an unknown key.
     @Bean
-    public JwtDecoder jwtDecoder() {
-        return JwtDecoders.fromIssuerLocation(issuerUri);
+    public JwtDecoder jwtDecoder() throws MalformedURLException {
+        JWKSource<SecurityContext> jwkSource = JWKSourceBuilder.create(URI.create(jwkSetUri).toURL())
+                .cache(jwkSetCacheTtl.toMillis(), jwkSetRefreshTimeout.toMillis())
+                .refreshAheadCache(jwkSetRefreshAhead.toMillis(), true)
+                .build();
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are validated by Spring below.
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingJwtDecoder(nimbusJwtDecoder, tokenCacheMaximumSize);
     }
 
 }
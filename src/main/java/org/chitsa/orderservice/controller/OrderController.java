@@ -1,15 +1,27 @@
 package org.chitsa.orderservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.chitsa.orderservice.dto.BulkOrderResponseDto;
+import org.chitsa.orderservice.dto.CustomerOrdersVersionDto;
 import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderPageDto;
 import org.chitsa.orderservice.dto.OrderRequestDto;
 import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.exception.IdempotencyKeyConflictException;
 import org.chitsa.orderservice.exception.ModelNotFoundException;
 import org.chitsa.orderservice.exception.UnauthorizedException;
 import org.chitsa.orderservice.services.OrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -18,46 +30,177 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/orders")
 @Tag(name = "Order API", description = "API for managing orders")
 @SecurityRequirement(name = "bearerAuth")
 public class OrderController {
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final byte NEW_LINE = '\n';
+    private static final String ETAG_DIGEST_ALGORITHM = "SHA-256";
+    private static final String ERROR_INVALID_EXPORT_SETTINGS = "orders.export.buffer-size and orders.export.flush-interval must be positive.";
+
     private final OrderService orderService;
+    private final ObjectWriter orderWriter;
+    private final int exportBufferSize;
+    private final int exportFlushInterval;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, ObjectMapper objectMapper,
+                           @Value("${orders.export.buffer-size:65536}") int exportBufferSize,
+                           @Value("${orders.export.flush-interval:500}") int exportFlushInterval) {
+        if (exportBufferSize <= 0 || exportFlushInterval <= 0) {
+            throw new IllegalArgumentException(ERROR_INVALID_EXPORT_SETTINGS);
+        }
         this.orderService = orderService;
+        this.orderWriter = objectMapper.writerFor(OrderResponseDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.exportBufferSize = exportBufferSize;
+        this.exportFlushInterval = exportFlushInterval;
     }
 
     @PostMapping("/create")
-    @Operation(summary = "Create a new order", description = "Creates a new order in the system")
-    public ResponseEntity<String> createNewOrder(@RequestBody OrderRequestDto orderRequestDto, @AuthenticationPrincipal Jwt jwt) {
+    @Operation(summary = "Create a new order", description = "Creates a new order in the system. Retries that send the "
+            + "same Idempotency-Key get the original result instead of creating another order")
+    public ResponseEntity<?> createNewOrder(@RequestBody OrderRequestDto orderRequestDto,
+                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                            @AuthenticationPrincipal Jwt jwt) {
         try {
-            orderService.createOrder(orderRequestDto, jwt.getSubject());
-            return ResponseEntity.status(HttpStatus.CREATED).body("Order created successfully.");
+            OrderResponseDto order = orderService.createOrder(orderRequestDto, jwt.getSubject(), idempotencyKey);
+            return ResponseEntity.created(URI.create("/api/orders/details/" + order.getOrderId())).body(order);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid order request: " + e.getMessage());
+        } catch (IdempotencyKeyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/bulk-create")
+    @Operation(summary = "Create orders in bulk", description = "Validates and creates many orders in one request, reporting the outcome of each")
+    public ResponseEntity<?> createNewOrders(@RequestBody List<OrderRequestDto> orderRequestDtos, @AuthenticationPrincipal Jwt jwt) {
+        try {
+            BulkOrderResponseDto response = orderService.createOrders(orderRequestDtos, jwt.getSubject());
+            HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+            return ResponseEntity.status(status).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid bulk order request: " + e.getMessage());
         }
     }
 
     @GetMapping("/customer-orders")
-    @Operation(summary = "Get all orders for a customer", description = "Retrieves all orders for the authenticated customer")
-    public ResponseEntity<List<OrderResponseDto>> getCustomerOrders(@AuthenticationPrincipal Jwt jwt) {
-        List<OrderResponseDto> orders = orderService.findOrdersByCustomerId(jwt.getSubject());
-        return ResponseEntity.ok(orders);
+    @Operation(summary = "Get orders for a customer", description = "Retrieves a page of orders for the authenticated customer, newest first")
+    public ResponseEntity<?> getCustomerOrders(@RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "from", required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                               @RequestParam(value = "to", required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                               @AuthenticationPrincipal Jwt jwt, WebRequest webRequest) {
+        try {
+            String customerId = jwt.getSubject();
+            // Read the version before the page, so a concurrent write can only make the ETag older than the body.
+            CustomerOrdersVersionDto ordersVersion = orderService.findCustomerOrdersVersion(customerId);
+            String eTag = customerOrdersETag(customerId, ordersVersion.getVersion(), cursor, limit, from, to);
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            OrderPageDto page = from == null && to == null
+                    ? orderService.findOrdersByCustomerId(customerId, ordersVersion.getVersion(),
+                            ordersVersion.getUpdatedAt(), cursor, limit)
+                    : orderService.findOrdersByCustomerIdBetween(customerId, ordersVersion.getUpdatedAt(), from, to,
+                            cursor, limit);
+            return ResponseEntity.ok().eTag(eTag).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid page request: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/analytics/daily-totals")
+    @Operation(summary = "Get daily order totals", description = "Order count, item count and amount per day for the authenticated customer")
+    public ResponseEntity<?> getDailyTotals(@RequestParam(value = "from", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(value = "to", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @AuthenticationPrincipal Jwt jwt) {
+        try {
+            return ResponseEntity.ok(orderService.findDailyTotalsByCustomerId(jwt.getSubject(), from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid totals request: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/analytics/top-products")
+    @Operation(summary = "Get top products", description = "Products the authenticated customer spent the most on, with quantities")
+    public ResponseEntity<?> getTopProducts(@RequestParam(value = "from", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(value = "to", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @RequestParam(value = "limit", required = false) Integer limit,
+                                            @AuthenticationPrincipal Jwt jwt) {
+        try {
+            return ResponseEntity.ok(orderService.findTopProductsByCustomerId(jwt.getSubject(), from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid top products request: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/customer-orders/export", produces = "application/x-ndjson")
+    @Operation(summary = "Export all orders for a customer", description = "Streams every order of the authenticated customer as newline-delimited JSON, oldest first")
+    public ResponseEntity<StreamingResponseBody> exportCustomerOrders(@AuthenticationPrincipal Jwt jwt) {
+        String customerId = jwt.getSubject();
+        StreamingResponseBody body = outputStream -> writeOrdersAsNdjson(customerId, outputStream);
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeOrdersAsNdjson(String customerId, OutputStream outputStream) throws IOException {
+        BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, exportBufferSize);
+        try (Stream<OrderResponseDto> orders = orderService.streamOrdersByCustomerId(customerId)) {
+            Iterator<OrderResponseDto> iterator = orders.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                orderWriter.writeValue(bufferedOutputStream, iterator.next());
+                bufferedOutputStream.write(NEW_LINE);
+                // Flush regularly so the first records reach the client before the whole export is read.
+                if (++written % exportFlushInterval == 0) {
+                    bufferedOutputStream.flush();
+                }
+            }
+        }
+        bufferedOutputStream.flush();
     }
 
     @GetMapping("/details/{orderId}")
     @Operation(summary = "Get order details", description = "Retrieves an order based on its ID")
-    public ResponseEntity<?> getOrderDetails(@PathVariable("orderId") String id) {
+    public ResponseEntity<?> getOrderDetails(@PathVariable("orderId") String id, WebRequest webRequest) {
         try {
+            // Only the version is read to answer If-None-Match; the items are loaded when the client needs them.
+            String eTag = orderETag(id, orderService.findOrderVersion(id));
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
             List<OrderItemDto> orderItemDtoList = orderService.findOrderItemsByOrderId(id);
-            return ResponseEntity.ok(orderItemDtoList);
+            return ResponseEntity.ok().eTag(eTag).body(orderItemDtoList);
         } catch (ModelNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found: " + e.getMessage());
         }
@@ -77,4 +220,24 @@ public class OrderController {
         }
     }
 
+    private static String orderETag(String orderId, long version) {
+        return "\"" + orderId + "-" + version + "\"";
+    }
+
+    // Each customer, page and range is a different representation, so all of them go into the digest. Every value is
+    // length-prefixed, so no two different requests encode to the same input.
+    private static String customerOrdersETag(String customerId, long version, String cursor, Integer limit,
+                                             LocalDateTime from, LocalDateTime to) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ETAG_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ETAG_DIGEST_ALGORITHM + " is not available", e);
+        }
+        for (Object value : new Object[]{customerId, version, cursor, limit, from, to}) {
+            String encoded = value == null ? "-" : value.toString().length() + ":" + value;
+            digest.update(encoded.getBytes(StandardCharsets.UTF_8));
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
 }
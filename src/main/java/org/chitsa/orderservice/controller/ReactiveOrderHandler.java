@@ -0,0 +1,71 @@
+package org.chitsa.orderservice.controller;
+
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.exception.ModelNotFoundException;
+import org.chitsa.orderservice.exception.UnauthorizedException;
+import org.chitsa.orderservice.services.ReactiveOrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderHandler {
+    private static final String ORDER_ID = "orderId";
+
+    private final ReactiveOrderService reactiveOrderService;
+
+    public ReactiveOrderHandler(ReactiveOrderService reactiveOrderService) {
+        this.reactiveOrderService = reactiveOrderService;
+    }
+
+    public Mono<ServerResponse> createNewOrder(ServerRequest request) {
+        return customerId(request)
+                .zipWith(request.bodyToMono(OrderRequestDto.class))
+                .flatMap(tuple -> reactiveOrderService.createOrder(tuple.getT2(), tuple.getT1()))
+                .flatMap(order -> ServerResponse.created(URI.create("/api/orders/details/" + order.getOrderId()))
+                        .bodyValue(order))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.status(HttpStatus.BAD_REQUEST)
+                        .bodyValue("Invalid order request: " + e.getMessage()));
+    }
+
+    // Streamed as NDJSON so the client's read rate propagates back to the MongoDB cursor.
+    public Mono<ServerResponse> streamCustomerOrders(ServerRequest request) {
+        return customerId(request)
+                .flatMap(customerId -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(reactiveOrderService.findOrdersByCustomerId(customerId), OrderResponseDto.class));
+    }
+
+    public Mono<ServerResponse> getOrderDetails(ServerRequest request) {
+        return reactiveOrderService.findOrderItemsByOrderId(request.pathVariable(ORDER_ID))
+                .collectList()
+                .flatMap(items -> ServerResponse.ok().bodyValue(items))
+                .onErrorResume(ModelNotFoundException.class, e -> ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .bodyValue("Order not found: " + e.getMessage()));
+    }
+
+    public Mono<ServerResponse> removeOrder(ServerRequest request) {
+        return customerId(request)
+                .flatMap(customerId -> reactiveOrderService.deleteOrder(request.pathVariable(ORDER_ID), customerId))
+                .then(ServerResponse.ok().bodyValue("Order deleted successfully."))
+                .onErrorResume(ModelNotFoundException.class, e -> ServerResponse.status(HttpStatus.NOT_FOUND)
+                        .bodyValue("Order not found: " + e.getMessage()))
+                .onErrorResume(UnauthorizedException.class, e -> ServerResponse.status(HttpStatus.FORBIDDEN)
+                        .bodyValue(e.getMessage()));
+    }
+
+    private Mono<String> customerId(ServerRequest request) {
+        return request.principal()
+                .cast(JwtAuthenticationToken.class)
+                .map(authentication -> authentication.getToken().getSubject());
+    }
+}
@@ -4,14 +4,22 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.chitsa.orderservice.dto.LoginRequestDto;
 import org.chitsa.orderservice.exception.AuthenticationException;
+import org.chitsa.orderservice.exception.ModelNotFoundException;
+import org.chitsa.orderservice.exception.SignUpCapacityExceededException;
 import org.chitsa.orderservice.services.UserService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.HttpStatus;
 
+import java.net.URI;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/users")
 @Tag(name = "User API", description = "API for managing users")
@@ -24,18 +32,51 @@ public class UserController {
     }
 
     @PostMapping("/signUp")
-    @Operation(summary = "Create a new user", description = "Creates a new user in the system")
-    public ResponseEntity<String> createUser(@RequestBody LoginRequestDto.UserRegisterDto userDto) {
+    @Operation(summary = "Create a new user", description = "Creates a new user in the system. With async=true the "
+            + "request is accepted straight away and the sign-up status endpoint reports when the user can log in")
+    public ResponseEntity<String> createUser(@RequestBody LoginRequestDto.UserRegisterDto userDto,
+                                             @RequestParam(defaultValue = "false") boolean async) {
         try {
+            if (async) {
+                String userId = userService.submitUserCreation(userDto);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/users/signUp/" + userId + "/status"))
+                        .body("User creation accepted with Username: " + userId);
+            }
             String userId = userService.createUser(userDto);
             return ResponseEntity.ok("User created successfully with Username: " + userId);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SignUpCapacityExceededException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred while creating the user.");
         }
     }
 
+    @GetMapping("/signUp/{username}/status")
+    @Operation(summary = "Get sign-up status", description = "Reports whether an asynchronous sign-up is pending, completed or failed")
+    public ResponseEntity<?> getSignUpStatus(@PathVariable String username) {
+        try {
+            return ResponseEntity.ok(userService.findSignUpStatus(username));
+        } catch (ModelNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/exists")
+    @Operation(summary = "Check users exist", description = "Reports for each user id whether the user exists. "
+            + "Requires the admin authority")
+    public ResponseEntity<?> doUsersExist(@RequestBody List<String> userIds) {
+        try {
+            return ResponseEntity.ok(userService.doUsersExistById(userIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred while checking users.");
+        }
+    }
+
     @PostMapping("/login")
     @Operation(summary = "User login", description = "authenticate user and retrieve tokens")
     public ResponseEntity<?> loginUser(@RequestBody LoginRequestDto loginDto) {
@@ -0,0 +1,30 @@
+package org.chitsa.orderservice.dto;
+
+import java.util.List;
+
+public class BulkOrderResponseDto {
+    private List<BulkOrderResultDto> results;
+
+    public BulkOrderResponseDto(List<BulkOrderResultDto> results) {
+        this.results = results;
+    }
+
+    public BulkOrderResponseDto() {}
+
+    public List<BulkOrderResultDto> getResults() {
+        return results;
+    }
+
+    public long getCreated() {
+        return results.stream().filter(BulkOrderResultDto::isSuccess).count();
+    }
+
+    public long getFailed() {
+        return results.size() - getCreated();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkOrderResponseDto [results=" + results + "]";
+    }
+}
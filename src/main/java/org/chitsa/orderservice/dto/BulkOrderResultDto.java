@@ -0,0 +1,46 @@
+package org.chitsa.orderservice.dto;
+
+public class BulkOrderResultDto {
+    private int index;
+    private String orderId;
+    private String error;
+
+    public BulkOrderResultDto(int index, String orderId, String error) {
+        this.index = index;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public BulkOrderResultDto() {}
+
+    public static BulkOrderResultDto created(int index, String orderId) {
+        return new BulkOrderResultDto(index, orderId, null);
+    }
+
+    public static BulkOrderResultDto failed(int index, String error) {
+        return new BulkOrderResultDto(index, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkOrderResultDto [index=" + index +
+                ", orderId=" + orderId +
+                ", error=" + error + "]";
+    }
+}
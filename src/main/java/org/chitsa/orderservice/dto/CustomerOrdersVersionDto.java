@@ -0,0 +1,28 @@
+package org.chitsa.orderservice.dto;
+
+import java.time.Instant;
+
+// The version behind the order list ETag, and when it last changed (null if the customer never wrote an order).
+public class CustomerOrdersVersionDto {
+    private final long version;
+    private final Instant updatedAt;
+
+    public CustomerOrdersVersionDto(long version, Instant updatedAt) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerOrdersVersionDto [version=" + version +
+                ", updatedAt=" + updatedAt + "]";
+    }
+}
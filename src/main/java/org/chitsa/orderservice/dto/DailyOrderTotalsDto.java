@@ -0,0 +1,50 @@
+package org.chitsa.orderservice.dto;
+
+import java.math.BigDecimal;
+
+public class DailyOrderTotalsDto {
+    private String customerId;
+    private String day;
+    private long orderCount;
+    private long itemCount;
+    private BigDecimal totalAmount;
+
+    public DailyOrderTotalsDto(String customerId, String day, long orderCount, long itemCount, BigDecimal totalAmount) {
+        this.customerId = customerId;
+        this.day = day;
+        this.orderCount = orderCount;
+        this.itemCount = itemCount;
+        this.totalAmount = totalAmount;
+    }
+
+    public DailyOrderTotalsDto() {}
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "DailyOrderTotalsDto [customerId=" + customerId +
+                ", day=" + day +
+                ", orderCount=" + orderCount +
+                ", itemCount=" + itemCount +
+                ", totalAmount=" + totalAmount + "]";
+    }
+}
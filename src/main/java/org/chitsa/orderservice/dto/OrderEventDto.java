@@ -0,0 +1,56 @@
+package org.chitsa.orderservice.dto;
+
+public class OrderEventDto {
+    private String eventId;
+    private String type;
+    private String orderId;
+    private String customerId;
+    private String occurredAt;
+    private OrderResponseDto order;
+
+    public OrderEventDto(String eventId, String type, String orderId, String customerId, String occurredAt,
+                         OrderResponseDto order) {
+        this.eventId = eventId;
+        this.type = type;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.occurredAt = occurredAt;
+        this.order = order;
+    }
+
+    public OrderEventDto() {}
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getOccurredAt() {
+        return occurredAt;
+    }
+
+    public OrderResponseDto getOrder() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderEventDto [eventId=" + eventId +
+                ", type=" + type +
+                ", orderId=" + orderId +
+                ", customerId=" + customerId +
+                ", occurredAt=" + occurredAt +
+                ", order=" + order + "]";
+    }
+}
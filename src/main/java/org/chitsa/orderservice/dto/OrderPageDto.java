@@ -0,0 +1,33 @@
+package org.chitsa.orderservice.dto;
+
+import java.util.List;
+
+public class OrderPageDto {
+    private List<OrderResponseDto> orders;
+    private String nextCursor;
+
+    public OrderPageDto(List<OrderResponseDto> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public OrderPageDto() {}
+
+    public List<OrderResponseDto> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderPageDto [orders=" + orders +
+                ", nextCursor=" + nextCursor + "]";
+    }
+}
@@ -0,0 +1,43 @@
+package org.chitsa.orderservice.dto;
+
+import java.math.BigDecimal;
+
+public class ProductTotalsDto {
+    private String productName;
+    private long quantity;
+    private long orderLineCount;
+    private BigDecimal revenue;
+
+    public ProductTotalsDto(String productName, long quantity, long orderLineCount, BigDecimal revenue) {
+        this.productName = productName;
+        this.quantity = quantity;
+        this.orderLineCount = orderLineCount;
+        this.revenue = revenue;
+    }
+
+    public ProductTotalsDto() {}
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getOrderLineCount() {
+        return orderLineCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductTotalsDto [productName=" + productName +
+                ", quantity=" + quantity +
+                ", orderLineCount=" + orderLineCount +
+                ", revenue=" + revenue + "]";
+    }
+}
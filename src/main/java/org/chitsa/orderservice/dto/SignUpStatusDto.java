@@ -0,0 +1,48 @@
+package org.chitsa.orderservice.dto;
+
+public class SignUpStatusDto {
+    public enum Status { PENDING, COMPLETED, FAILED }
+
+    private String username;
+    private Status status;
+    private String error;
+
+    public SignUpStatusDto(String username, Status status, String error) {
+        this.username = username;
+        this.status = status;
+        this.error = error;
+    }
+
+    public SignUpStatusDto() {}
+
+    public static SignUpStatusDto pending(String username) {
+        return new SignUpStatusDto(username, Status.PENDING, null);
+    }
+
+    public static SignUpStatusDto completed(String username) {
+        return new SignUpStatusDto(username, Status.COMPLETED, null);
+    }
+
+    public static SignUpStatusDto failed(String username, String error) {
+        return new SignUpStatusDto(username, Status.FAILED, error);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "SignUpStatusDto [username=" + username +
+                ", status=" + status +
+                ", error=" + error + "]";
+    }
+}
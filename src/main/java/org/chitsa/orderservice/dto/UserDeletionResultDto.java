@@ -0,0 +1,41 @@
+package org.chitsa.orderservice.dto;
+
+public class UserDeletionResultDto {
+    private long deletedUsers;
+    private long alreadyDeletedUsers;
+    private boolean completed;
+    private String error;
+
+    public UserDeletionResultDto(long deletedUsers, long alreadyDeletedUsers, boolean completed, String error) {
+        this.deletedUsers = deletedUsers;
+        this.alreadyDeletedUsers = alreadyDeletedUsers;
+        this.completed = completed;
+        this.error = error;
+    }
+
+    public UserDeletionResultDto() {}
+
+    public long getDeletedUsers() {
+        return deletedUsers;
+    }
+
+    public long getAlreadyDeletedUsers() {
+        return alreadyDeletedUsers;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "UserDeletionResultDto [deletedUsers=" + deletedUsers +
+                ", alreadyDeletedUsers=" + alreadyDeletedUsers +
+                ", completed=" + completed +
+                ", error=" + error + "]";
+    }
+}
@@ -0,0 +1,12 @@
+package org.chitsa.orderservice.exception;
+
+public class SignUpCapacityExceededException extends RuntimeException {
+
+    public SignUpCapacityExceededException(String message) {
+        super(message);
+    }
+
+    public SignUpCapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -5,6 +5,7 @@ import org.chitsa.orderservice.dto.OrderRequestDto;
 import org.chitsa.orderservice.dto.OrderResponseDto;
 import org.chitsa.orderservice.model.Order;
 import org.chitsa.orderservice.model.OrderItem;
+import org.chitsa.orderservice.model.OrderSummary;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -18,25 +19,32 @@ public class OrderDtoMapper {
         return new OrderResponseDto(
                 order.getId(),
                 order.getCustomerId(),
-                calculateTotalAmount(order.getItems()),
+                resolveTotalAmount(order),
                 order.getCreatedAt().toString()
         );
     }
 
-    public Order toOrder(OrderRequestDto orderRequestDto, String customerId) {
-        return new Order(
-                customerId,
-                orderRequestDto.getItems().stream()
-                        .map(this::toOrderItem)
-                        .collect(Collectors.toList())
+    public OrderResponseDto toOrderResponseDto(OrderSummary orderSummary) {
+        return new OrderResponseDto(
+                orderSummary.getId(),
+                orderSummary.getCustomerId(),
+                orderSummary.getTotalAmount(),
+                orderSummary.getCreatedAt().toString()
         );
     }
 
+    public Order toOrder(OrderRequestDto orderRequestDto, String customerId) {
+        List<OrderItem> orderItems = orderRequestDto.getItems().stream()
+                .map(this::toOrderItem)
+                .collect(Collectors.toList());
+        return new Order(customerId, orderItems, calculateTotalAmount(orderItems));
+    }
+
     public OrderItem toOrderItem(OrderItemDto orderItemDto) {
         return new OrderItem(
                 orderItemDto.getProductName(),
                 orderItemDto.getQuantity(),
-                orderItemDto.getPrice()
+                orderItemDto.getPrice() == null ? null : toMinorUnits(orderItemDto.getPrice())
         );
     }
 
@@ -44,13 +52,28 @@ public class OrderDtoMapper {
         return new OrderItemDto(
                 orderItem.getProductName(),
                 orderItem.getQuantity(),
-                orderItem.getPrice()
+                orderItem.getPriceMinorUnits() == null ? null : fromMinorUnits(orderItem.getPriceMinorUnits())
         );
     }
 
-    private BigDecimal calculateTotalAmount(List<OrderItem> orderItemList) {
+    // Orders written before totals were stored fall back to computing it from the items.
+    private BigDecimal resolveTotalAmount(Order order) {
+        return order.getTotalAmount() != null ? order.getTotalAmount() : calculateTotalAmount(order.getItems());
+    }
+
+    public BigDecimal calculateTotalAmount(List<OrderItem> orderItemList) {
         return orderItemList.stream()
-                .map(item -> BigDecimal.valueOf(item.getPrice()).multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                .map(item -> BigDecimal.valueOf(item.getPriceMinorUnits()).multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .movePointLeft(OrderItem.MINOR_UNIT_SCALE);
+    }
+
+    // Exact: a price with more decimals than minor units, or too large for a long, throws ArithmeticException.
+    public static long toMinorUnits(double price) {
+        return BigDecimal.valueOf(price).movePointRight(OrderItem.MINOR_UNIT_SCALE).longValueExact();
+    }
+
+    public static double fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, OrderItem.MINOR_UNIT_SCALE).doubleValue();
     }
 }
@@ -0,0 +1,130 @@
+package org.chitsa.orderservice.mapping;
+
+import org.bson.BsonBinarySubType;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.chitsa.orderservice.model.OrderItem;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+// Stores order items under short keys, with binary UUIDs and prices in minor units.
+// Items written before the compact schema keep their long keys and are still readable; their double prices are rounded
+// to the nearest minor unit on read, since OrderItem holds minor units only. Only prices that round exactly may be
+// written back in the compact form.
+public final class OrderItemConverters {
+    public static final String FIELD_PRODUCT_ID = "p";
+    public static final String FIELD_PRODUCT_NAME = "n";
+    public static final String FIELD_QUANTITY = "q";
+    public static final String FIELD_PRICE_MINOR = "m";
+    public static final String LEGACY_FIELD_PRODUCT_ID = "productId";
+    public static final String LEGACY_FIELD_PRODUCT_NAME = "productName";
+    public static final String LEGACY_FIELD_QUANTITY = "quantity";
+    public static final String LEGACY_FIELD_PRICE = "price";
+
+    private OrderItemConverters() {
+    }
+
+    public static List<Converter<?, ?>> converters() {
+        return List.of(new Writing(), new Reading());
+    }
+
+    public static boolean isExactInMinorUnits(Number legacyPrice) {
+        try {
+            BigDecimal.valueOf(legacyPrice.doubleValue()).movePointRight(OrderItem.MINOR_UNIT_SCALE).longValueExact();
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    @WritingConverter
+    public static class Writing implements Converter<OrderItem, Document> {
+
+        @Override
+        public Document convert(OrderItem item) {
+            Document document = new Document(FIELD_PRODUCT_ID, writeProductId(item.getProductId()))
+                    .append(FIELD_PRODUCT_NAME, item.getProductName())
+                    .append(FIELD_QUANTITY, item.getQuantity());
+            if (item.getPriceMinorUnits() != null) {
+                document.append(FIELD_PRICE_MINOR, item.getPriceMinorUnits());
+            }
+            return document;
+        }
+
+        private static Object writeProductId(String productId) {
+            if (productId == null) {
+                return null;
+            }
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(productId);
+            } catch (IllegalArgumentException e) {
+                return productId;
+            }
+            // Only canonical strings round-trip through the binary form.
+            if (!uuid.toString().equals(productId)) {
+                return productId;
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits());
+            return new Binary(BsonBinarySubType.UUID_STANDARD, bytes.array());
+        }
+    }
+
+    @ReadingConverter
+    public static class Reading implements Converter<Document, OrderItem> {
+
+        @Override
+        public OrderItem convert(Document document) {
+            return new OrderItem(
+                    readProductId(firstPresent(document, FIELD_PRODUCT_ID, LEGACY_FIELD_PRODUCT_ID)),
+                    (String) firstPresent(document, FIELD_PRODUCT_NAME, LEGACY_FIELD_PRODUCT_NAME),
+                    readInteger(firstPresent(document, FIELD_QUANTITY, LEGACY_FIELD_QUANTITY)),
+                    readPriceMinorUnits(document)
+            );
+        }
+
+        private static Object firstPresent(Document document, String field, String legacyField) {
+            Object value = document.get(field);
+            return value != null ? value : document.get(legacyField);
+        }
+
+        private static String readProductId(Object value) {
+            if (value instanceof UUID uuid) {
+                return uuid.toString();
+            }
+            if (value instanceof Binary binary && binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+                ByteBuffer bytes = ByteBuffer.wrap(binary.getData());
+                return new UUID(bytes.getLong(), bytes.getLong()).toString();
+            }
+            return value != null ? value.toString() : null;
+        }
+
+        private static Integer readInteger(Object value) {
+            return value instanceof Number number ? number.intValue() : null;
+        }
+
+        private static Long readPriceMinorUnits(Document document) {
+            Object minorUnits = document.get(FIELD_PRICE_MINOR);
+            if (minorUnits instanceof Number number) {
+                return number.longValue();
+            }
+            Object price = document.get(LEGACY_FIELD_PRICE);
+            if (price instanceof Number number) {
+                return BigDecimal.valueOf(number.doubleValue())
+                        .setScale(OrderItem.MINOR_UNIT_SCALE, RoundingMode.HALF_EVEN)
+                        .unscaledValue()
+                        .longValueExact();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.chitsa.orderservice.metrics;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// Times every Cognito SDK call, tagged by operation (adminInitiateAuth, adminCreateUser, ...) and outcome. Timers are
+// looked up by request class and outcome, so a call only builds and registers one the first time that pair is seen.
+public class CognitoRequestMetricsHandler extends RequestHandler2 {
+    private static final String COGNITO_REQUESTS_METRIC = "cognito.requests";
+    private static final HandlerContextKey<Long> START_TIME = new HandlerContextKey<>("CognitoRequestStartTime");
+    private static final String OUTCOME_SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public CognitoRequestMetricsHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_TIME, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        record(request, OUTCOME_SUCCESS);
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        record(request, e.getClass().getSimpleName());
+    }
+
+    private void record(Request<?> request, String outcome) {
+        Long startTime = request.getHandlerContext(START_TIME);
+        if (startTime == null) {
+            return;
+        }
+        timer(request.getOriginalRequest().getClass(), outcome)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Class<?> requestClass, String outcome) {
+        return timers.computeIfAbsent(requestClass, ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(outcome, ignored -> Timer.builder(COGNITO_REQUESTS_METRIC)
+                        .description("Latency of Cognito SDK calls")
+                        .tag("operation", operationName(requestClass))
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    // AdminInitiateAuthRequest -> adminInitiateAuth
+    private static String operationName(Class<?> requestClass) {
+        String requestName = requestClass.getSimpleName();
+        String operation = requestName.endsWith("Request")
+                ? requestName.substring(0, requestName.length() - "Request".length())
+                : requestName;
+        return Character.toLowerCase(operation.charAt(0)) + operation.substring(1);
+    }
+}
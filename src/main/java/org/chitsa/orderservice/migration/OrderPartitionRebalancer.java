@@ -0,0 +1,137 @@
+package org.chitsa.orderservice.migration;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.repo.OrderPartition;
+import org.chitsa.orderservice.repo.OrderPartitionRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Moves orders to the partition that owns them under the current ring, after partitions were added or removed.
+// Each batch is copied to its new owner before it is deleted from the old one, so a crash leaves duplicates (ignored on
+// the next run and by readers) rather than losing orders. Run it on one instance once every instance uses the new ring
+// and previous-ring; when it reports nothing left to move, previous-ring can be dropped.
+@Component
+@ConditionalOnProperty(name = "orders.partitioning.rebalance.enabled", havingValue = "true")
+public class OrderPartitionRebalancer {
+    private static final Logger logger = LoggerFactory.getLogger(OrderPartitionRebalancer.class);
+    private static final String FIELD_ID = "id";
+
+    private final OrderPartitionRouter partitionRouter;
+
+    @Value("${orders.partitioning.rebalance.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public OrderPartitionRebalancer(OrderPartitionRouter partitionRouter) {
+        this.partitionRouter = partitionRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebalance() {
+        Thread.ofPlatform().name("order-partition-rebalance").daemon(true).start(this::rebalance);
+    }
+
+    public long rebalance() {
+        long moved = 0;
+        for (OrderPartition source : partitionRouter.all()) {
+            moved += rebalance(source);
+        }
+        logger.info("Order partition rebalance finished, {} orders moved", moved);
+        return moved;
+    }
+
+    private long rebalance(OrderPartition source) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID))
+                .cursorBatchSize(batchSize);
+        long moved = 0;
+        try (Stream<Order> orders = source.getTemplate().stream(query, Order.class, source.getCollection())) {
+            Iterator<Order> iterator = orders.iterator();
+            Map<OrderPartition, List<Order>> misplaced = new LinkedHashMap<>();
+            int pending = 0;
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                OrderPartition owner = partitionRouter.ownerOf(order.getCustomerId());
+                if (owner == source) {
+                    continue;
+                }
+                misplaced.computeIfAbsent(owner, partition -> new ArrayList<>()).add(order);
+                if (++pending == batchSize) {
+                    moved += move(source, misplaced);
+                    logger.info("Moved {} orders out of {}", moved, source);
+                    misplaced.clear();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                moved += move(source, misplaced);
+            }
+        }
+        return moved;
+    }
+
+    private long move(OrderPartition source, Map<OrderPartition, List<Order>> misplaced) {
+        long moved = 0;
+        for (Map.Entry<OrderPartition, List<Order>> entry : misplaced.entrySet()) {
+            OrderPartition target = entry.getKey();
+            List<String> ids = entry.getValue().stream().map(Order::getId).collect(Collectors.toList());
+            copy(target, entry.getValue());
+            // An order deleted by its customer since it was read must not come back as the copy, so only orders still
+            // present in the source are kept. A delete after this check removes the copy as well, since deletes cover
+            // the old and the new owner.
+            Query byIds = Query.query(Criteria.where(FIELD_ID).in(ids));
+            byIds.fields().include(FIELD_ID);
+            Set<String> stillPresent = source.getTemplate().find(byIds, Order.class, source.getCollection()).stream()
+                    .map(Order::getId)
+                    .collect(Collectors.toCollection(HashSet::new));
+            List<String> deletedMeanwhile = ids.stream()
+                    .filter(id -> !stillPresent.contains(id))
+                    .collect(Collectors.toList());
+            if (!deletedMeanwhile.isEmpty()) {
+                target.getTemplate().remove(Query.query(Criteria.where(FIELD_ID).in(deletedMeanwhile)), Order.class,
+                        target.getCollection());
+            }
+            moved += source.getTemplate().remove(Query.query(Criteria.where(FIELD_ID).in(stillPresent)), Order.class,
+                    source.getCollection()).getDeletedCount();
+        }
+        return moved;
+    }
+
+    // Orders copied by an earlier, interrupted run are already there; only other errors stop the rebalance.
+    private void copy(OrderPartition target, List<Order> orders) {
+        try {
+            target.getTemplate().bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, target.getCollection())
+                    .insert(orders)
+                    .execute();
+        } catch (BulkOperationException ex) {
+            for (BulkWriteError error : ex.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw ex;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.chitsa.orderservice.migration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.chitsa.orderservice.mapping.OrderItemConverters;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderItem;
+import org.chitsa.orderservice.repo.OrderPartition;
+import org.chitsa.orderservice.repo.OrderPartitionRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Rewrites orders stored before the compact schema so their items use the short field names. Orders are read as raw
+// documents, so an order with a legacy price finer than a minor unit is left as it is rather than saved rounded.
+@Component
+@ConditionalOnProperty(name = "orders.migration.compact-schema.enabled", havingValue = "true")
+public class OrderSchemaRewrite {
+    private static final Logger logger = LoggerFactory.getLogger(OrderSchemaRewrite.class);
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_ITEMS = "items";
+    private static final String FIELD_SCHEMA_VERSION = "_v";
+
+    private final OrderPartitionRouter partitionRouter;
+    private final OrderItemConverters.Reading itemReader = new OrderItemConverters.Reading();
+    private final Counter inexactPriceSkips;
+
+    @Value("${orders.migration.compact-schema.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    public OrderSchemaRewrite(OrderPartitionRouter partitionRouter, MeterRegistry meterRegistry) {
+        this.partitionRouter = partitionRouter;
+        this.inexactPriceSkips = meterRegistry.counter("orders.migration.compact-schema.skipped");
+    }
+
+    // Old documents stay readable, so the rewrite can run in the background while traffic is served.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRewrite() {
+        Thread.ofPlatform().name("order-schema-rewrite").daemon(true).start(this::rewrite);
+    }
+
+    public long rewrite() {
+        long updated = 0;
+        double skippedBefore = inexactPriceSkips.count();
+        for (OrderPartition partition : partitionRouter.all()) {
+            updated += rewrite(partition.getTemplate(), partition.getCollection());
+        }
+        logger.info("Order schema rewrite finished, {} orders updated, {} skipped for inexact prices", updated,
+                (long) (inexactPriceSkips.count() - skippedBefore));
+        return updated;
+    }
+
+    private long rewrite(MongoTemplate mongoTemplate, String collection) {
+        Query query = Query.query(outdated())
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID))
+                .cursorBatchSize(batchSize);
+        query.fields().include(FIELD_ITEMS);
+
+        long updated = 0;
+        try (Stream<Document> orders = mongoTemplate.stream(query, Document.class, collection)) {
+            Iterator<Document> iterator = orders.iterator();
+            BulkOperations bulkOperations = null;
+            int pending = 0;
+            while (iterator.hasNext()) {
+                Document order = iterator.next();
+                List<OrderItem> items = readExactItems(order);
+                if (items == null) {
+                    inexactPriceSkips.increment();
+                    logger.warn("Skipping order {} in {}: a legacy price is not a whole number of minor units",
+                            order.get(FIELD_ID), collection);
+                    continue;
+                }
+                if (bulkOperations == null) {
+                    bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, collection);
+                }
+                // Items are immutable, so the guard on the version only skips orders another instance already rewrote.
+                bulkOperations.updateOne(
+                        Query.query(Criteria.where(FIELD_ID).is(order.get(FIELD_ID)).andOperator(outdated())),
+                        new Update()
+                                .set(FIELD_ITEMS, items)
+                                .set(FIELD_SCHEMA_VERSION, Order.SCHEMA_VERSION)
+                );
+                if (++pending == batchSize) {
+                    updated += bulkOperations.execute().getModifiedCount();
+                    logger.info("Rewrote {} orders to the compact schema in {}", updated, collection);
+                    bulkOperations = null;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updated += bulkOperations.execute().getModifiedCount();
+            }
+        }
+        return updated;
+    }
+
+    // Returns null when any legacy price would have to be rounded.
+    private List<OrderItem> readExactItems(Document order) {
+        List<OrderItem> items = new ArrayList<>();
+        for (Document item : order.getList(FIELD_ITEMS, Document.class, List.of())) {
+            if (item.get(OrderItemConverters.FIELD_PRICE_MINOR) == null
+                    && item.get(OrderItemConverters.LEGACY_FIELD_PRICE) instanceof Number price
+                    && !OrderItemConverters.isExactInMinorUnits(price)) {
+                return null;
+            }
+            items.add(itemReader.convert(item));
+        }
+        return items;
+    }
+
+    private static Criteria outdated() {
+        return new Criteria().orOperator(
+                Criteria.where(FIELD_SCHEMA_VERSION).exists(false),
+                Criteria.where(FIELD_SCHEMA_VERSION).lt(Order.SCHEMA_VERSION)
+        );
+    }
+}
@@ -0,0 +1,98 @@
+package org.chitsa.orderservice.migration;
+
+import org.bson.types.Decimal128;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.repo.OrderPartition;
+import org.chitsa.orderservice.repo.OrderPartitionRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Stores totalAmount and itemCount on orders written before they were computed at creation time.
+@Component
+@ConditionalOnProperty(name = "orders.migration.backfill-totals.enabled", havingValue = "true")
+public class OrderTotalsBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(OrderTotalsBackfill.class);
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ITEMS = "items";
+    private static final String FIELD_TOTAL_AMOUNT = "totalAmount";
+    private static final String FIELD_ITEM_COUNT = "itemCount";
+
+    private final OrderPartitionRouter partitionRouter;
+    private final OrderDtoMapper orderDtoMapper;
+
+    @Value("${orders.migration.backfill-totals.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    public OrderTotalsBackfill(OrderPartitionRouter partitionRouter, OrderDtoMapper orderDtoMapper) {
+        this.partitionRouter = partitionRouter;
+        this.orderDtoMapper = orderDtoMapper;
+    }
+
+    // Runs off the startup thread; until an order is backfilled its total is still computed on read.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread.ofPlatform().name("order-totals-backfill").daemon(true).start(this::backfill);
+    }
+
+    public long backfill() {
+        long updated = 0;
+        for (OrderPartition partition : partitionRouter.all()) {
+            updated += backfill(partition.getTemplate(), partition.getCollection());
+        }
+        logger.info("Order totals backfill finished, {} orders updated", updated);
+        return updated;
+    }
+
+    private long backfill(MongoTemplate mongoTemplate, String collection) {
+        Query query = Query.query(Criteria.where(FIELD_TOTAL_AMOUNT).exists(false))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID))
+                .cursorBatchSize(batchSize);
+        query.fields().include(FIELD_ITEMS);
+
+        long updated = 0;
+        try (Stream<Order> orders = mongoTemplate.stream(query, Order.class, collection)) {
+            Iterator<Order> iterator = orders.iterator();
+            BulkOperations bulkOperations = null;
+            int pending = 0;
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                if (bulkOperations == null) {
+                    bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, collection);
+                }
+                bulkOperations.updateOne(
+                        Query.query(Criteria.where(FIELD_ID).is(order.getId())),
+                        new Update()
+                                .set(FIELD_TOTAL_AMOUNT, new Decimal128(orderDtoMapper.calculateTotalAmount(order.getItems())))
+                                .set(FIELD_ITEM_COUNT, order.getItems().size())
+                );
+                if (++pending == batchSize) {
+                    updated += bulkOperations.execute().getModifiedCount();
+                    logger.info("Backfilled totals for {} orders in {}", updated, collection);
+                    bulkOperations = null;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updated += bulkOperations.execute().getModifiedCount();
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,38 @@
+package org.chitsa.orderservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// One counter per customer, incremented whenever one of their orders is created or deleted.
+// The order list ETag is derived from it, so a conditional GET needs only this single-key read. updatedAt tells
+// whether secondaries may not have seen the customer's latest write yet.
+@Document(collection = "customer_order_versions")
+public class CustomerOrderVersion {
+    @Id
+    private String customerId;
+    private long version;
+    private Instant updatedAt;
+
+    public CustomerOrderVersion() {
+    }
+
+    public CustomerOrderVersion(String customerId, long version, Instant updatedAt) {
+        this.customerId = customerId;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
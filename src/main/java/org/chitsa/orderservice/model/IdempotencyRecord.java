@@ -0,0 +1,76 @@
+package org.chitsa.orderservice.model;
+
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// One record per customer and Idempotency-Key; _id is unique, so only one request can claim a key.
+// Pending records hold a lease; once it runs out, a retry may take the key over. Completed records keep a snapshot of
+// the response for replays. Records are removed by a TTL index on createdAt (see MongoIndexConfig).
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    public enum Status { PENDING, COMPLETED }
+
+    @Id
+    private String id;
+    private String requestHash;
+    private Status status;
+    private OrderResponseDto response;
+    private Instant createdAt;
+    private Instant leaseUntil;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, String requestHash, Status status, OrderResponseDto response, Instant createdAt,
+                             Instant leaseUntil) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.response = response;
+        this.createdAt = createdAt;
+        this.leaseUntil = leaseUntil;
+    }
+
+    // createdAt is kept at the millisecond precision MongoDB stores, so it reads back unchanged.
+    public static IdempotencyRecord pending(String id, String requestHash, Duration lease) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        return new IdempotencyRecord(id, requestHash, Status.PENDING, null, now, now.plus(lease));
+    }
+
+    public IdempotencyRecord complete(OrderResponseDto response) {
+        return new IdempotencyRecord(id, requestHash, Status.COMPLETED, response, createdAt, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public OrderResponseDto getResponse() {
+        return response;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+}
@@ -1,26 +1,46 @@
 package org.chitsa.orderservice.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndex(name = "customer_created_at_id", def = "{'customerId': 1, 'createdAt': -1, '_id': -1}")
 public class Order {
+    public static final int SCHEMA_VERSION = 2;
+
     @Id
     private String id;
     private String customerId;
     private List<OrderItem> items;
     private LocalDateTime createdAt;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal totalAmount;
+    private Integer itemCount;
+    // Null for orders written before versioning.
+    @Version
+    private Long version;
+    // Missing on orders whose items still use the long field names.
+    @Field("_v")
+    private Integer schemaVersion;
 
     public Order() {
         createdAt = LocalDateTime.now();
     }
 
-    public Order(String customerId, List<OrderItem> items) {
+    public Order(String customerId, List<OrderItem> items, BigDecimal totalAmount) {
         this.customerId = customerId;
         this.items = items;
+        this.totalAmount = totalAmount;
+        this.itemCount = items.size();
+        this.schemaVersion = SCHEMA_VERSION;
         createdAt = LocalDateTime.now();
     }
 
@@ -28,6 +48,10 @@ public class Order {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getCustomerId() {
         return customerId;
     }
@@ -40,4 +64,20 @@ public class Order {
         return createdAt;
     }
 
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+
 }
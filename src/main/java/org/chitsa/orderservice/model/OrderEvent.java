@@ -0,0 +1,75 @@
+package org.chitsa.orderservice.model;
+
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// An outbox entry written in the same transaction as the order change it describes.
+// The relay leases entries before publishing them and deletes them once the sink has accepted them.
+@Document(collection = "order_outbox")
+public class OrderEvent {
+    public enum Type { ORDER_CREATED, ORDER_DELETED }
+
+    @Id
+    private String id;
+    private Type type;
+    private String orderId;
+    private String customerId;
+    private OrderResponseDto order;
+    private Instant occurredAt;
+    private String leaseOwner;
+    private Instant leaseUntil;
+
+    public OrderEvent() {
+    }
+
+    public OrderEvent(Type type, String orderId, String customerId, OrderResponseDto order, Instant occurredAt) {
+        this.type = type;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.order = order;
+        this.occurredAt = occurredAt;
+    }
+
+    public static OrderEvent created(OrderResponseDto order) {
+        return new OrderEvent(Type.ORDER_CREATED, order.getOrderId(), order.getCustomerId(), order, Instant.now());
+    }
+
+    public static OrderEvent deleted(Order order) {
+        return new OrderEvent(Type.ORDER_DELETED, order.getId(), order.getCustomerId(), null, Instant.now());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public OrderResponseDto getOrder() {
+        return order;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+}
@@ -3,21 +3,31 @@ package org.chitsa.orderservice.model;
 
 import java.util.UUID;
 
+// The price is held in minor units (hundredths), so totals are summed exactly.
 public class OrderItem {
+    public static final int MINOR_UNIT_SCALE = 2;
+
     private final String productId;
     private String productName;
     private Integer quantity;
-    private Double price;
+    private Long priceMinorUnits;
 
     public OrderItem() {
         productId = UUID.randomUUID().toString();
     }
 
-    public OrderItem(String productName, Integer quantity, Double price) {
+    public OrderItem(String productName, Integer quantity, Long priceMinorUnits) {
         productId = UUID.randomUUID().toString();
         this.productName = productName;
         this.quantity = quantity;
-        this.price = price;
+        this.priceMinorUnits = priceMinorUnits;
+    }
+
+    public OrderItem(String productId, String productName, Integer quantity, Long priceMinorUnits) {
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.priceMinorUnits = priceMinorUnits;
     }
 
     public String getProductId() {return productId;}
@@ -30,8 +40,8 @@ public class OrderItem {
         return quantity;
     }
 
-    public Double getPrice() {
-        return price;
+    public Long getPriceMinorUnits() {
+        return priceMinorUnits;
     }
 
     @Override
@@ -40,7 +50,7 @@ public class OrderItem {
                 "productId='" + productId + '\'' +
                 ", productName='" + productName + '\'' +
                 ", quantity=" + quantity +
-                ", price=" + price +
+                ", priceMinorUnits=" + priceMinorUnits +
                 '}';
     }
 }
@@ -0,0 +1,34 @@
+package org.chitsa.orderservice.model;
+
+import org.springframework.data.annotation.Id;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read-only projection of Order used by list views; the items array is never loaded.
+public class OrderSummary {
+    @Id
+    private String id;
+    private String customerId;
+    private LocalDateTime createdAt;
+    private BigDecimal totalAmount;
+
+    public OrderSummary() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+}
@@ -0,0 +1,28 @@
+package org.chitsa.orderservice.outbox;
+
+import org.chitsa.orderservice.model.OrderEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Used when the outbox is off: writes run as before and no events are recorded.
+@Component
+@ConditionalOnProperty(name = "orders.outbox.enabled", havingValue = "false", matchIfMissing = true)
+public class DisabledOrderEventOutbox implements OrderEventOutbox {
+
+    @Override
+    public <T> T execute(Supplier<T> write) {
+        return write.get();
+    }
+
+    @Override
+    public void executeWithoutResult(Runnable write) {
+        write.run();
+    }
+
+    @Override
+    public void append(List<OrderEvent> events) {
+    }
+}
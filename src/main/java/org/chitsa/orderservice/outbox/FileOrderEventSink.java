@@ -0,0 +1,43 @@
+package org.chitsa.orderservice.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.chitsa.orderservice.dto.OrderEventDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Appends events to a newline-delimited JSON file, one write and one fsync per batch.
+public class FileOrderEventSink implements OrderEventSink {
+    private static final byte NEW_LINE = '\n';
+
+    private final Path path;
+    private final ObjectWriter eventWriter;
+
+    public FileOrderEventSink(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.eventWriter = objectMapper.writerFor(OrderEventDto.class);
+    }
+
+    @Override
+    public synchronized void publish(List<OrderEventDto> events) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (OrderEventDto event : events) {
+            buffer.write(eventWriter.writeValueAsBytes(event));
+            buffer.write(NEW_LINE);
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+}
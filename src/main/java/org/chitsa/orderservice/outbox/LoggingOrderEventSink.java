@@ -0,0 +1,19 @@
+package org.chitsa.orderservice.outbox;
+
+import org.chitsa.orderservice.dto.OrderEventDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Writes each event to the application log; meant for local runs.
+public class LoggingOrderEventSink implements OrderEventSink {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingOrderEventSink.class);
+
+    @Override
+    public void publish(List<OrderEventDto> events) {
+        for (OrderEventDto event : events) {
+            logger.info("Order event {}", event);
+        }
+    }
+}
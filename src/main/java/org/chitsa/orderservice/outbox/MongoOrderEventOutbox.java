@@ -0,0 +1,54 @@
+package org.chitsa.orderservice.outbox;
+
+import org.chitsa.orderservice.config.OrderPartitioningProperties;
+import org.chitsa.orderservice.model.OrderEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Runs order writes in a MongoDB transaction (replica set required) and inserts the events in that transaction.
+// A write error aborts the transaction, so nothing from a failed write is left behind in either collection.
+@Component
+@ConditionalOnProperty(name = "orders.outbox.enabled", havingValue = "true")
+public class MongoOrderEventOutbox implements OrderEventOutbox {
+    private static final String ERROR_REMOTE_PARTITION = "The outbox transaction cannot cover order partition ";
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public MongoOrderEventOutbox(MongoTemplate mongoTemplate, TransactionTemplate transactionTemplate,
+                                 OrderPartitioningProperties partitioningProperties) {
+        // A partition in another deployment has its own client, outside the transaction, so its writes and their events
+        // would no longer commit together.
+        for (OrderPartitioningProperties.Partition partition : partitioningProperties.getPartitions()) {
+            if (partition.getUri() != null) {
+                throw new IllegalStateException(ERROR_REMOTE_PARTITION + partition.getName());
+            }
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public <T> T execute(Supplier<T> write) {
+        return transactionTemplate.execute(status -> write.get());
+    }
+
+    @Override
+    public void executeWithoutResult(Runnable write) {
+        transactionTemplate.executeWithoutResult(status -> write.run());
+    }
+
+    @Override
+    public void append(List<OrderEvent> events) {
+        if (!events.isEmpty()) {
+            mongoTemplate.insertAll(events);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.chitsa.orderservice.outbox;
+
+import org.chitsa.orderservice.model.OrderEvent;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Order writes and their events go through here so both commit or neither does.
+public interface OrderEventOutbox {
+    <T> T execute(Supplier<T> write);
+    void executeWithoutResult(Runnable write);
+    void append(List<OrderEvent> events);
+}
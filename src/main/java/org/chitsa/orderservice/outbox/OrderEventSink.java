@@ -0,0 +1,12 @@
+package org.chitsa.orderservice.outbox;
+
+import org.chitsa.orderservice.dto.OrderEventDto;
+
+import java.io.IOException;
+import java.util.List;
+
+// Destination for relayed order events. publish returns only once the batch is durable at the destination;
+// a batch can be delivered more than once, so consumers should de-duplicate on eventId.
+public interface OrderEventSink {
+    void publish(List<OrderEventDto> events) throws IOException;
+}
@@ -0,0 +1,191 @@
+package org.chitsa.orderservice.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.chitsa.orderservice.dto.OrderEventDto;
+import org.chitsa.orderservice.model.OrderEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Drains the outbox in batches: lease, publish, delete. Any instance can run it; a lease keeps other instances off a
+// batch while it is being published, and an expired lease (crash, sink failure) makes the batch available again.
+// Delivery is at least once and in _id order within a batch.
+@Component
+@ConditionalOnProperty(name = "orders.outbox.enabled", havingValue = "true")
+public class OrderOutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxRelay.class);
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_LEASE_OWNER = "leaseOwner";
+    private static final String FIELD_LEASE_UNTIL = "leaseUntil";
+    private static final String FIELD_OCCURRED_AT = "occurredAt";
+
+    private final MongoTemplate mongoTemplate;
+    private final OrderEventSink orderEventSink;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedEvents;
+    private final Counter failedBatches;
+    private final Timer publishTimer;
+    private volatile boolean running = true;
+    private Thread relayThread;
+
+    @Value("${orders.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${orders.outbox.poll-interval:PT0.5S}")
+    private Duration pollInterval;
+
+    @Value("${orders.outbox.lease-duration:PT30S}")
+    private Duration leaseDuration;
+
+    @Autowired
+    public OrderOutboxRelay(MongoTemplate mongoTemplate, OrderEventSink orderEventSink, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderEventSink = orderEventSink;
+        this.publishedEvents = meterRegistry.counter("orders.outbox.published");
+        this.failedBatches = meterRegistry.counter("orders.outbox.publish.failures");
+        this.publishTimer = Timer.builder("orders.outbox.publish")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // Age of the oldest event still in the outbox, leased or not; 0 when it is empty.
+        TimeGauge.builder("orders.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relayThread = Thread.ofPlatform().name("order-outbox-relay").daemon(true).start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                updateLag();
+                // A full batch means more are probably waiting, so poll again straight away.
+                if (relayBatch() < batchSize) {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                logger.warn("Order outbox relay failed, retrying after the lease expires", e);
+                sleepQuietly(pollInterval);
+            }
+        }
+    }
+
+    private int relayBatch() {
+        List<OrderEvent> events = leaseBatch();
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<OrderEventDto> eventDtos = events.stream()
+                .map(this::toOrderEventDto)
+                .collect(Collectors.toList());
+        try {
+            publishTimer.recordCallable(() -> {
+                orderEventSink.publish(eventDtos);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not publish " + events.size() + " order events", e);
+        }
+        List<String> ids = events.stream().map(OrderEvent::getId).collect(Collectors.toList());
+        // Only delete what this instance still owns; a batch whose lease ran out may already be re-published elsewhere.
+        mongoTemplate.remove(Query.query(Criteria.where(FIELD_ID).in(ids).and(FIELD_LEASE_OWNER).is(instanceId)),
+                OrderEvent.class);
+        publishedEvents.increment(events.size());
+        return events.size();
+    }
+
+    // Two steps: pick candidate ids, then lease those still unleased. Events another instance leased in between are
+    // skipped; they show up in its batch instead.
+    private List<OrderEvent> leaseBatch() {
+        Instant now = Instant.now();
+        Query candidates = Query.query(available(now))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID))
+                .limit(batchSize);
+        candidates.fields().include(FIELD_ID);
+        List<String> ids = mongoTemplate.find(candidates, OrderEvent.class).stream()
+                .map(OrderEvent::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where(FIELD_ID).in(ids).andOperator(available(now))),
+                new Update().set(FIELD_LEASE_OWNER, instanceId).set(FIELD_LEASE_UNTIL, now.plus(leaseDuration)),
+                OrderEvent.class
+        );
+        return mongoTemplate.find(Query.query(Criteria.where(FIELD_ID).in(ids).and(FIELD_LEASE_OWNER).is(instanceId))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID)), OrderEvent.class);
+    }
+
+    private void updateLag() {
+        Query oldest = new Query()
+                .with(Sort.by(Sort.Direction.ASC, FIELD_ID))
+                .limit(1);
+        oldest.fields().include(FIELD_OCCURRED_AT);
+        OrderEvent event = mongoTemplate.findOne(oldest, OrderEvent.class);
+        lagMillis.set(event == null ? 0 : Duration.between(event.getOccurredAt(), Instant.now()).toMillis());
+    }
+
+    private Criteria available(Instant now) {
+        return new Criteria().orOperator(
+                Criteria.where(FIELD_LEASE_UNTIL).is(null),
+                Criteria.where(FIELD_LEASE_UNTIL).lt(now)
+        );
+    }
+
+    private OrderEventDto toOrderEventDto(OrderEvent event) {
+        return new OrderEventDto(
+                event.getId(),
+                event.getType().name(),
+                event.getOrderId(),
+                event.getCustomerId(),
+                event.getOccurredAt().toString(),
+                event.getOrder()
+        );
+    }
+
+    private void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
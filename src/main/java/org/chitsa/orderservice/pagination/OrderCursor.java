@@ -0,0 +1,51 @@
+package org.chitsa.orderservice.pagination;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class OrderCursor {
+    private static final String SEPARATOR = "|";
+    private static final String ERROR_INVALID_CURSOR = "Invalid cursor.";
+
+    private final LocalDateTime createdAt;
+    private final String orderId;
+
+    public OrderCursor(LocalDateTime createdAt, String orderId) {
+        this.createdAt = createdAt;
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+            }
+            String orderId = raw.substring(separatorIndex + 1);
+            if (!ObjectId.isValid(orderId)) {
+                throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+            }
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, separatorIndex)), orderId);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(ERROR_INVALID_CURSOR, ex);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.CustomerOrderVersion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomerOrderVersionRepo extends MongoRepository<CustomerOrderVersion, String>, CustomerOrderVersionRepoCustom {
+}
@@ -0,0 +1,5 @@
+package org.chitsa.orderservice.repo;
+
+public interface CustomerOrderVersionRepoCustom {
+    void increment(String customerId);
+}
@@ -0,0 +1,37 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.CustomerOrderVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+public class CustomerOrderVersionRepoCustomImpl implements CustomerOrderVersionRepoCustom {
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public CustomerOrderVersionRepoCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Atomic upsert, so concurrent writers never lose an increment.
+    @Override
+    public void increment(String customerId) {
+        mongoTemplate.upsert(byCustomerId(customerId), incrementVersion(), CustomerOrderVersion.class);
+    }
+
+    static Query byCustomerId(String customerId) {
+        return Query.query(Criteria.where(FIELD_ID).is(customerId));
+    }
+
+    static Update incrementVersion() {
+        return new Update().inc(FIELD_VERSION, 1).set(FIELD_UPDATED_AT, Instant.now());
+    }
+}
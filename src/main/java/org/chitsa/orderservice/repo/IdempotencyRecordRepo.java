@@ -0,0 +1,22 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.config.CacheConfig;
+import org.chitsa.orderservice.model.IdempotencyRecord;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepo extends MongoRepository<IdempotencyRecord, String>, IdempotencyRecordRepoCustom {
+    // Completed records never change, so replays are answered from memory once one has been read.
+    @Override
+    @Cacheable(cacheNames = CacheConfig.IDEMPOTENCY_KEYS_CACHE, key = "#p0", unless = "#result == null || !#result.completed")
+    Optional<IdempotencyRecord> findById(String id);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.IDEMPOTENCY_KEYS_CACHE, key = "#p0")
+    void deleteById(String id);
+}
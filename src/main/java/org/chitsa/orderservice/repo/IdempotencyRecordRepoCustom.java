@@ -0,0 +1,11 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.IdempotencyRecord;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepoCustom {
+    Optional<IdempotencyRecord> takeOverExpired(String id, Duration lease);
+    void expireLease(String id);
+}
@@ -0,0 +1,50 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+public class IdempotencyRecordRepoCustomImpl implements IdempotencyRecordRepoCustom {
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_LEASE_UNTIL = "leaseUntil";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public IdempotencyRecordRepoCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Atomic, so of several retries racing for an expired claim only one gets it.
+    @Override
+    public Optional<IdempotencyRecord> takeOverExpired(String id, Duration lease) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where(FIELD_ID).is(id)
+                .and(FIELD_STATUS).is(IdempotencyRecord.Status.PENDING)
+                .and(FIELD_LEASE_UNTIL).lte(now));
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query,
+                new Update().set(FIELD_LEASE_UNTIL, now.plus(lease)),
+                FindAndModifyOptions.options().returnNew(true),
+                IdempotencyRecord.class
+        ));
+    }
+
+    @Override
+    public void expireLease(String id) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where(FIELD_ID).is(id).and(FIELD_STATUS).is(IdempotencyRecord.Status.PENDING)),
+                new Update().set(FIELD_LEASE_UNTIL, Instant.EPOCH),
+                IdempotencyRecord.class
+        );
+    }
+}
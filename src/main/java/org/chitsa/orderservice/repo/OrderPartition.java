@@ -0,0 +1,33 @@
+package org.chitsa.orderservice.repo;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+// One place orders are stored: a collection reached through its own template.
+public class OrderPartition {
+    private final String name;
+    private final MongoTemplate template;
+    private final String collection;
+
+    public OrderPartition(String name, MongoTemplate template, String collection) {
+        this.name = name;
+        this.template = template;
+        this.collection = collection;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MongoTemplate getTemplate() {
+        return template;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderPartition [name=" + name + ", collection=" + collection + "]";
+    }
+}
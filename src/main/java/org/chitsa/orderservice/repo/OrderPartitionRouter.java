@@ -0,0 +1,167 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import jakarta.annotation.PreDestroy;
+import org.chitsa.orderservice.config.OrderPartitioningProperties;
+import org.chitsa.orderservice.model.Order;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.StandardMongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Maps a customer to the partition that owns their orders with a consistent-hash ring, so adding or removing a
+// partition moves only the customers on the affected arcs. While a rebalance is under way the previous ring is kept
+// as well: customer reads cover the old and new owner, writes go to the new owner. Without configuration there is a
+// single partition, the application's orders collection.
+@Component
+public class OrderPartitionRouter {
+    private static final String DEFAULT_PARTITION_NAME = "default";
+    private static final String HASH_ALGORITHM = "MD5";
+    private static final String ERROR_UNKNOWN_PARTITION = "Unknown order partition in ring: ";
+
+    private final MongoClientSettings mongoClientSettings;
+    private final List<MongoClientSettingsBuilderCustomizer> settingsCustomizers;
+    private final Map<String, OrderPartition> partitions = new LinkedHashMap<>();
+    private final List<MongoClient> partitionClients = new ArrayList<>();
+    private final NavigableMap<Long, OrderPartition> ring;
+    private final NavigableMap<Long, OrderPartition> previousRing;
+    private final ExecutorService scatterExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public OrderPartitionRouter(MongoTemplate mongoTemplate, OrderPartitioningProperties properties,
+                                MongoClientSettings mongoClientSettings,
+                                ObjectProvider<MongoClientSettingsBuilderCustomizer> settingsCustomizers) {
+        this.mongoClientSettings = mongoClientSettings;
+        // The standard customizer applies spring.data.mongodb.*, which describes the application database, not the
+        // partition's deployment.
+        this.settingsCustomizers = settingsCustomizers.orderedStream()
+                .filter(customizer -> !(customizer instanceof StandardMongoClientSettingsBuilderCustomizer))
+                .toList();
+        if (properties.getPartitions().isEmpty()) {
+            String collection = mongoTemplate.getCollectionName(Order.class);
+            partitions.put(DEFAULT_PARTITION_NAME, new OrderPartition(DEFAULT_PARTITION_NAME, mongoTemplate, collection));
+        }
+        for (OrderPartitioningProperties.Partition partition : properties.getPartitions()) {
+            partitions.put(partition.getName(), new OrderPartition(partition.getName(),
+                    partition.getUri() == null ? mongoTemplate : partitionTemplate(partition.getUri(), mongoTemplate),
+                    partition.getCollection()));
+        }
+        List<String> ringNames = properties.getRing().isEmpty() ? List.copyOf(partitions.keySet()) : properties.getRing();
+        this.ring = buildRing(ringNames, properties.getVirtualNodes());
+        this.previousRing = properties.getPreviousRing().isEmpty()
+                ? null
+                : buildRing(properties.getPreviousRing(), properties.getVirtualNodes());
+    }
+
+    public OrderPartition ownerOf(String customerId) {
+        return lookup(ring, customerId);
+    }
+
+    // The owner first, then the previous owner if a rebalance may not have moved this customer's orders yet.
+    public List<OrderPartition> partitionsFor(String customerId) {
+        OrderPartition owner = ownerOf(customerId);
+        if (previousRing == null) {
+            return List.of(owner);
+        }
+        OrderPartition previousOwner = lookup(previousRing, customerId);
+        return previousOwner == owner ? List.of(owner) : List.of(owner, previousOwner);
+    }
+
+    public List<OrderPartition> all() {
+        return List.copyOf(partitions.values());
+    }
+
+    // Scatter-gather for lookups that only know the order id: every partition is asked in parallel.
+    public <T> Optional<T> findInAnyPartition(Function<OrderPartition, T> lookup) {
+        if (partitions.size() == 1) {
+            return Optional.ofNullable(lookup.apply(partitions.values().iterator().next()));
+        }
+        List<CompletableFuture<T>> lookups = partitions.values().stream()
+                .map(partition -> CompletableFuture.supplyAsync(() -> lookup.apply(partition), scatterExecutor))
+                .toList();
+        try {
+            for (CompletableFuture<T> result : lookups) {
+                T value = result.join();
+                if (value != null) {
+                    return Optional.of(value);
+                }
+            }
+            return Optional.empty();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scatterExecutor.shutdown();
+        partitionClients.forEach(MongoClient::close);
+    }
+
+    // Shares the application's converter so every partition maps documents the same way, and builds the client like
+    // Boot builds the application's, so metrics listeners and pool or timeout customizations apply to partitions too.
+    private MongoTemplate partitionTemplate(String uri, MongoTemplate mongoTemplate) {
+        ConnectionString connectionString = new ConnectionString(uri);
+        MongoClientSettings.Builder settings = MongoClientSettings.builder(mongoClientSettings);
+        settingsCustomizers.forEach(customizer -> customizer.customize(settings));
+        MongoClient client = MongoClients.create(settings.applyConnectionString(connectionString).build());
+        partitionClients.add(client);
+        String database = connectionString.getDatabase();
+        return new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database), mongoTemplate.getConverter());
+    }
+
+    private NavigableMap<Long, OrderPartition> buildRing(List<String> names, int virtualNodes) {
+        NavigableMap<Long, OrderPartition> nodes = new TreeMap<>();
+        for (String name : names) {
+            OrderPartition partition = partitions.get(name);
+            if (partition == null) {
+                throw new IllegalStateException(ERROR_UNKNOWN_PARTITION + name);
+            }
+            for (int node = 0; node < virtualNodes; node++) {
+                nodes.put(hash(name + "#" + node), partition);
+            }
+        }
+        return nodes;
+    }
+
+    private static OrderPartition lookup(NavigableMap<Long, OrderPartition> nodes, String customerId) {
+        Map.Entry<Long, OrderPartition> node = nodes.ceilingEntry(hash(customerId));
+        return (node != null ? node : nodes.firstEntry()).getValue();
+    }
+
+    // Data placement depends on this, so it must never change; MD5 also spreads similar customer ids evenly.
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+}
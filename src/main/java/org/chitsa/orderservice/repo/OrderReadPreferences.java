@@ -0,0 +1,58 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Read preferences per kind of order read. Lists (pages, exports, analytics) and order details can be served by
+// secondaries no more than max-staleness behind the primary; everything else, including the ownership check before a
+// delete, stays on the primary.
+@Component
+public class OrderReadPreferences {
+    // The smallest maxStalenessSeconds MongoDB servers and drivers accept.
+    private static final Duration MIN_MAX_STALENESS = Duration.ofSeconds(90);
+    private static final String ERROR_MAX_STALENESS_TOO_LOW = "Max staleness must be at least 90 seconds: ";
+
+    private final ReadPreference lists;
+    private final ReadPreference details;
+    private final Duration readYourWritesWindow;
+
+    @Autowired
+    public OrderReadPreferences(@Value("${orders.read-preference.lists:primary}") String listsMode,
+                                @Value("${orders.read-preference.lists-max-staleness:PT90S}") Duration listsMaxStaleness,
+                                @Value("${orders.read-preference.details:primary}") String detailsMode,
+                                @Value("${orders.read-preference.details-max-staleness:PT90S}") Duration detailsMaxStaleness) {
+        this.lists = readPreference(listsMode, listsMaxStaleness);
+        this.details = readPreference(detailsMode, detailsMaxStaleness);
+        // Any eligible secondary has caught up with a write once the largest staleness bound has passed.
+        this.readYourWritesWindow = listsMaxStaleness.compareTo(detailsMaxStaleness) >= 0 ? listsMaxStaleness : detailsMaxStaleness;
+    }
+
+    public ReadPreference forLists() {
+        return lists;
+    }
+
+    public ReadPreference forDetails() {
+        return details;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    private static ReadPreference readPreference(String mode, Duration maxStaleness) {
+        if (maxStaleness.compareTo(MIN_MAX_STALENESS) < 0) {
+            throw new IllegalArgumentException(ERROR_MAX_STALENESS_TOO_LOW + maxStaleness);
+        }
+        ReadPreference readPreference = ReadPreference.valueOf(mode);
+        if (readPreference.equals(ReadPreference.primary())) {
+            return readPreference;
+        }
+        return ReadPreference.valueOf(mode, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+}
@@ -1,13 +1,35 @@
 package org.chitsa.orderservice.repo;
 
+import com.mongodb.ReadPreference;
+import org.chitsa.orderservice.config.CacheConfig;
 import org.chitsa.orderservice.model.Order;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.repository.RepositoryDefinition;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
 import java.util.Optional;
 
+// Not a MongoRepository: only partition-aware operations are exposed, since the inherited CRUD methods (findAll, count,
+// deleteById, saveAll, ...) would only see the application's own orders collection.
 @Repository
-public interface OrderRepo extends MongoRepository<Order, String> {
-    Optional<List<Order>> findOrdersByCustomerId(String customerId);
+@RepositoryDefinition(domainClass = Order.class, idClass = String.class)
+public interface OrderRepo extends OrderRepoCustom {
+    @Override
+    @Cacheable(cacheNames = CacheConfig.ORDERS_CACHE, key = "#p0", unless = "#result == null")
+    Optional<Order> findById(String id);
+
+    @Override
+    <S extends Order> S save(S order);
+
+    @Override
+    void delete(Order order);
+
+    // Cached by id alone: an order's items never change, whichever member they were read from.
+    @Override
+    @Cacheable(cacheNames = CacheConfig.ORDER_ITEMS_CACHE, key = "#p0", unless = "#result == null")
+    Optional<Order> findItemsById(String id, ReadPreference readPreference);
+
+    // Not cached: conditional GETs must notice deletes made by other instances.
+    @Override
+    Optional<Order> findVersionById(String id);
 }
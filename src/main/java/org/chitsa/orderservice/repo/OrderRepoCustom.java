@@ -0,0 +1,31 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.ReadPreference;
+import org.chitsa.orderservice.dto.DailyOrderTotalsDto;
+import org.chitsa.orderservice.dto.ProductTotalsDto;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.chitsa.orderservice.pagination.OrderCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// findById, save and delete replace the repository's own implementations so that they are partition-aware.
+public interface OrderRepoCustom {
+    Optional<Order> findById(String id);
+    Optional<Order> findVersionById(String id);
+    <S extends Order> S save(S order);
+    void delete(Order order);
+    List<OrderSummary> findOrderSummariesPageByCustomerId(String customerId, LocalDateTime from, LocalDateTime to,
+                                                          OrderCursor cursor, int limit, ReadPreference readPreference);
+    Stream<OrderSummary> streamOrderSummariesByCustomerId(String customerId, int batchSize, ReadPreference readPreference);
+    Optional<Order> findItemsById(String id, ReadPreference readPreference);
+    Map<Integer, String> insertAllUnordered(List<Order> orders);
+    List<DailyOrderTotalsDto> aggregateDailyTotals(String customerId, LocalDateTime from, LocalDateTime to,
+                                                   ReadPreference readPreference);
+    List<ProductTotalsDto> aggregateTopProducts(String customerId, LocalDateTime from, LocalDateTime to, int limit,
+                                                ReadPreference readPreference);
+}
@@ -0,0 +1,415 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.chitsa.orderservice.dto.DailyOrderTotalsDto;
+import org.chitsa.orderservice.dto.ProductTotalsDto;
+import org.chitsa.orderservice.mapping.OrderItemConverters;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderItem;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.chitsa.orderservice.pagination.OrderCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ExecutableFindOperation;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Every query goes to the partitions chosen by OrderPartitionRouter. Customer queries read the owning partition, and
+// while a rebalance is under way also the previous owner; their results are merged here, dropping the duplicates that
+// exist while an order is being moved. Lookups by id alone ask every partition.
+public class OrderRepoCustomImpl implements OrderRepoCustom {
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_CUSTOMER_ID = "customerId";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_TOTAL_AMOUNT = "totalAmount";
+    private static final String FIELD_ITEMS = "items";
+    private static final String FIELD_VERSION = "version";
+    private static final String DAY_FORMAT = "%Y-%m-%d";
+    private static final Comparator<OrderSummary> OLDEST_FIRST =
+            Comparator.comparing(OrderSummary::getCreatedAt).thenComparing(OrderSummary::getId);
+
+    private final OrderPartitionRouter partitionRouter;
+    private final String analyticsTimeZone;
+
+    @Autowired
+    public OrderRepoCustomImpl(OrderPartitionRouter partitionRouter,
+                               @Value("${orders.analytics.time-zone:UTC}") String analyticsTimeZone) {
+        this.partitionRouter = partitionRouter;
+        // Resolved here so an unknown zone fails at startup rather than on the first aggregation.
+        this.analyticsTimeZone = ZoneId.of(analyticsTimeZone).getId();
+    }
+
+    @Override
+    public Optional<Order> findById(String id) {
+        return partitionRouter.findInAnyPartition(partition ->
+                partition.getTemplate().findById(id, Order.class, partition.getCollection()));
+    }
+
+    @Override
+    public Optional<Order> findVersionById(String id) {
+        Query query = Query.query(Criteria.where(FIELD_ID).is(id));
+        query.fields().include(FIELD_ID, FIELD_VERSION);
+        return partitionRouter.findInAnyPartition(partition ->
+                partition.getTemplate().findOne(query, Order.class, partition.getCollection()));
+    }
+
+    @Override
+    public <S extends Order> S save(S order) {
+        OrderPartition partition = partitionRouter.ownerOf(order.getCustomerId());
+        return partition.getTemplate().save(order, partition.getCollection());
+    }
+
+    // The previous owner may still hold the order during a rebalance.
+    @Override
+    public void delete(Order order) {
+        for (OrderPartition partition : partitionRouter.partitionsFor(order.getCustomerId())) {
+            partition.getTemplate().remove(order, partition.getCollection());
+        }
+    }
+
+    // Keyset pagination over the (customerId, createdAt, _id) index, newest first.
+    @Override
+    public List<OrderSummary> findOrderSummariesPageByCustomerId(String customerId, LocalDateTime from, LocalDateTime to,
+                                                                 OrderCursor cursor, int limit, ReadPreference readPreference) {
+        Criteria criteria = withCreatedAtRange(Criteria.where(FIELD_CUSTOMER_ID).is(customerId), from, to);
+        if (cursor != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where(FIELD_CREATED_AT).lt(cursor.getCreatedAt()),
+                    Criteria.where(FIELD_CREATED_AT).is(cursor.getCreatedAt())
+                            .and(FIELD_ID).lt(new ObjectId(cursor.getOrderId()))
+            );
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, FIELD_CREATED_AT, FIELD_ID))
+                .limit(limit)
+                .withReadPreference(readPreference);
+        List<OrderPartition> partitions = partitionRouter.partitionsFor(customerId);
+        if (partitions.size() == 1) {
+            return findSummaries(partitions.get(0), query).all();
+        }
+        Map<String, OrderSummary> merged = new HashMap<>();
+        for (OrderPartition partition : partitions) {
+            findSummaries(partition, query).all().forEach(summary -> merged.putIfAbsent(summary.getId(), summary));
+        }
+        return merged.values().stream()
+                .sorted(OLDEST_FIRST.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Oldest first over the same index, read through a server-side cursor so the caller must close the stream.
+    @Override
+    public Stream<OrderSummary> streamOrderSummariesByCustomerId(String customerId, int batchSize,
+                                                                 ReadPreference readPreference) {
+        Query query = Query.query(Criteria.where(FIELD_CUSTOMER_ID).is(customerId))
+                .with(Sort.by(Sort.Direction.ASC, FIELD_CREATED_AT, FIELD_ID))
+                .cursorBatchSize(batchSize)
+                .withReadPreference(readPreference);
+        List<OrderPartition> partitions = partitionRouter.partitionsFor(customerId);
+        if (partitions.size() == 1) {
+            return findSummaries(partitions.get(0), query).stream();
+        }
+        List<Stream<OrderSummary>> streams = new ArrayList<>();
+        for (OrderPartition partition : partitions) {
+            streams.add(findSummaries(partition, query).stream());
+        }
+        return mergeOldestFirst(streams);
+    }
+
+    @Override
+    public Optional<Order> findItemsById(String id, ReadPreference readPreference) {
+        Query query = Query.query(Criteria.where(FIELD_ID).is(id))
+                .withReadPreference(readPreference);
+        query.fields().include(FIELD_ITEMS);
+        return partitionRouter.findInAnyPartition(partition ->
+                partition.getTemplate().findOne(query, Order.class, partition.getCollection()));
+    }
+
+    // Ids are assigned up front so callers know them even for documents the server rejects.
+    // Returns the write errors keyed by the index of the failed order.
+    @Override
+    public Map<Integer, String> insertAllUnordered(List<Order> orders) {
+        Map<OrderPartition, List<Integer>> indexesByPartition = new LinkedHashMap<>();
+        for (int index = 0; index < orders.size(); index++) {
+            Order order = orders.get(index);
+            if (order.getId() == null) {
+                order.setId(new ObjectId().toHexString());
+            }
+            indexesByPartition.computeIfAbsent(partitionRouter.ownerOf(order.getCustomerId()), partition -> new ArrayList<>())
+                    .add(index);
+        }
+        Map<Integer, String> failures = new HashMap<>();
+        indexesByPartition.forEach((partition, indexes) -> {
+            try {
+                partition.getTemplate().bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, partition.getCollection())
+                        .insert(indexes.stream().map(orders::get).collect(Collectors.toList()))
+                        .execute();
+            } catch (BulkOperationException ex) {
+                for (BulkWriteError error : ex.getErrors()) {
+                    failures.put(indexes.get(error.getIndex()), error.getMessage());
+                }
+            }
+        });
+        return failures;
+    }
+
+    // Totals are grouped per customer and calendar day (in orders.analytics.time-zone) on the database side.
+    // Orders without a stored total or item count fall back to summing their items.
+    @Override
+    public List<DailyOrderTotalsDto> aggregateDailyTotals(String customerId, LocalDateTime from, LocalDateTime to,
+                                                          ReadPreference readPreference) {
+        Document day = new Document("$dateToString", new Document("format", DAY_FORMAT)
+                .append("date", "$createdAt")
+                .append("timezone", analyticsTimeZone));
+        Document group = new Document("_id", new Document("customerId", "$customerId").append("day", day))
+                .append("orderCount", new Document("$sum", 1))
+                .append("itemCount", new Document("$sum", ifNull("$itemCount", new Document("$size", "$items"))))
+                .append("totalAmount", new Document("$sum", ifNull("$totalAmount", new Document("$sum", new Document("$map",
+                        new Document("input", "$items").append("as", "item").append("in", lineAmount("$$item")))))));
+        Document project = new Document("_id", 0)
+                .append("customerId", "$_id.customerId")
+                .append("day", "$_id.day")
+                .append("orderCount", 1)
+                .append("itemCount", 1)
+                .append("totalAmount", 1);
+        TypedAggregation<Order> aggregation = Aggregation.newAggregation(Order.class,
+                Aggregation.match(matchOrders(customerId, from, to)),
+                stage("$group", group),
+                stage("$project", project),
+                stage("$sort", new Document("customerId", 1).append("day", 1))
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).readPreference(readPreference).build());
+        List<OrderPartition> partitions = partitionsToAggregate(customerId);
+        if (partitions.size() == 1) {
+            return aggregate(partitions.get(0), aggregation, DailyOrderTotalsDto.class);
+        }
+        Map<List<String>, DailyOrderTotalsDto> merged = new HashMap<>();
+        for (OrderPartition partition : partitions) {
+            for (DailyOrderTotalsDto totals : aggregate(partition, aggregation, DailyOrderTotalsDto.class)) {
+                merged.merge(List.of(totals.getCustomerId(), totals.getDay()), totals, (left, right) -> new DailyOrderTotalsDto(
+                        left.getCustomerId(),
+                        left.getDay(),
+                        left.getOrderCount() + right.getOrderCount(),
+                        left.getItemCount() + right.getItemCount(),
+                        left.getTotalAmount().add(right.getTotalAmount())
+                ));
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(DailyOrderTotalsDto::getCustomerId).thenComparing(DailyOrderTotalsDto::getDay))
+                .collect(Collectors.toList());
+    }
+
+    // Top products by revenue across the matched orders, ties broken by name.
+    @Override
+    public List<ProductTotalsDto> aggregateTopProducts(String customerId, LocalDateTime from, LocalDateTime to, int limit,
+                                                       ReadPreference readPreference) {
+        Document group = new Document("_id",
+                        itemField("$items", OrderItemConverters.FIELD_PRODUCT_NAME, OrderItemConverters.LEGACY_FIELD_PRODUCT_NAME))
+                .append("quantity", new Document("$sum",
+                        itemField("$items", OrderItemConverters.FIELD_QUANTITY, OrderItemConverters.LEGACY_FIELD_QUANTITY)))
+                .append("orderLineCount", new Document("$sum", 1))
+                .append("revenue", new Document("$sum", lineAmount("$items")));
+        Document project = new Document("_id", 0)
+                .append("productName", "$_id")
+                .append("quantity", 1)
+                .append("orderLineCount", 1)
+                .append("revenue", 1);
+        List<OrderPartition> partitions = partitionsToAggregate(customerId);
+        List<AggregationOperation> operations = new ArrayList<>(List.of(
+                Aggregation.match(matchOrders(customerId, from, to)),
+                stage("$unwind", "$items"),
+                stage("$group", group),
+                stage("$sort", new Document("revenue", -1).append("_id", 1))
+        ));
+        // A product outside one partition's top N can still make the overall top N, so the limit is applied after
+        // merging when there is more than one partition.
+        if (partitions.size() == 1) {
+            operations.add(stage("$limit", limit));
+        }
+        operations.add(stage("$project", project));
+        TypedAggregation<Order> aggregation = Aggregation.newAggregation(Order.class, operations)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).readPreference(readPreference).build());
+        if (partitions.size() == 1) {
+            return aggregate(partitions.get(0), aggregation, ProductTotalsDto.class);
+        }
+        Map<String, ProductTotalsDto> merged = new HashMap<>();
+        for (OrderPartition partition : partitions) {
+            for (ProductTotalsDto totals : aggregate(partition, aggregation, ProductTotalsDto.class)) {
+                merged.merge(totals.getProductName(), totals, (left, right) -> new ProductTotalsDto(
+                        left.getProductName(),
+                        left.getQuantity() + right.getQuantity(),
+                        left.getOrderLineCount() + right.getOrderLineCount(),
+                        left.getRevenue().add(right.getRevenue())
+                ));
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(ProductTotalsDto::getRevenue, Comparator.reverseOrder())
+                        .thenComparing(ProductTotalsDto::getProductName, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Totals across all customers need every partition.
+    private List<OrderPartition> partitionsToAggregate(String customerId) {
+        return customerId == null ? partitionRouter.all() : partitionRouter.partitionsFor(customerId);
+    }
+
+    private <T> List<T> aggregate(OrderPartition partition, TypedAggregation<Order> aggregation, Class<T> outputType) {
+        return partition.getTemplate().aggregate(aggregation, partition.getCollection(), outputType).getMappedResults();
+    }
+
+    private Criteria matchOrders(String customerId, LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = customerId == null ? new Criteria() : Criteria.where(FIELD_CUSTOMER_ID).is(customerId);
+        return withCreatedAtRange(criteria, from, to);
+    }
+
+    // The range is half-open: from is inclusive, to is exclusive.
+    private Criteria withCreatedAtRange(Criteria criteria, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return criteria;
+        }
+        Criteria createdAt = criteria.and(FIELD_CREATED_AT);
+        if (from != null) {
+            createdAt = createdAt.gte(from);
+        }
+        if (to != null) {
+            createdAt = createdAt.lt(to);
+        }
+        return createdAt;
+    }
+
+    // Compact items carry the price in minor units, older items a double; either becomes Decimal128 before summing.
+    private static Document lineAmount(String item) {
+        Document minorUnits = new Document("$divide", List.of(
+                new Document("$toDecimal", item + "." + OrderItemConverters.FIELD_PRICE_MINOR),
+                new Decimal128(BigDecimal.ONE.movePointRight(OrderItem.MINOR_UNIT_SCALE))
+        ));
+        return new Document("$multiply", List.of(
+                ifNull(minorUnits, new Document("$toDecimal", item + "." + OrderItemConverters.LEGACY_FIELD_PRICE)),
+                itemField(item, OrderItemConverters.FIELD_QUANTITY, OrderItemConverters.LEGACY_FIELD_QUANTITY)
+        ));
+    }
+
+    private static Document itemField(String item, String field, String legacyField) {
+        return ifNull(item + "." + field, item + "." + legacyField);
+    }
+
+    private static Document ifNull(Object value, Object fallback) {
+        return new Document("$ifNull", List.of(value, fallback));
+    }
+
+    private static AggregationOperation stage(String operator, Object value) {
+        return context -> new Document(operator, value);
+    }
+
+    private ExecutableFindOperation.TerminatingFind<OrderSummary> findSummaries(OrderPartition partition, Query query) {
+        query.fields().include(FIELD_CUSTOMER_ID, FIELD_CREATED_AT, FIELD_TOTAL_AMOUNT);
+        return partition.getTemplate().query(Order.class)
+                .inCollection(partition.getCollection())
+                .as(OrderSummary.class)
+                .matching(query);
+    }
+
+    // k-way merge of streams that are each sorted oldest first. A copy of an order sits next to the original in that
+    // order, so it is dropped by comparing with the previous element.
+    private static Stream<OrderSummary> mergeOldestFirst(List<Stream<OrderSummary>> streams) {
+        PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(Comparator.comparing(PeekingIterator::peek, OLDEST_FIRST));
+        for (Stream<OrderSummary> stream : streams) {
+            PeekingIterator iterator = new PeekingIterator(stream.iterator());
+            if (iterator.hasNext()) {
+                heads.add(iterator);
+            }
+        }
+        Iterator<OrderSummary> merged = new Iterator<>() {
+            private String lastId;
+
+            @Override
+            public boolean hasNext() {
+                while (!heads.isEmpty() && heads.peek().peek().getId().equals(lastId)) {
+                    advance();
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public OrderSummary next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                OrderSummary summary = advance();
+                lastId = summary.getId();
+                return summary;
+            }
+
+            private OrderSummary advance() {
+                PeekingIterator head = heads.poll();
+                OrderSummary summary = head.next();
+                if (head.hasNext()) {
+                    heads.add(head);
+                }
+                return summary;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    private static final class PeekingIterator implements Iterator<OrderSummary> {
+        private final Iterator<OrderSummary> iterator;
+        private OrderSummary next;
+
+        private PeekingIterator(Iterator<OrderSummary> iterator) {
+            this.iterator = iterator;
+        }
+
+        private OrderSummary peek() {
+            if (next == null) {
+                next = iterator.next();
+            }
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null || iterator.hasNext();
+        }
+
+        @Override
+        public OrderSummary next() {
+            OrderSummary current = peek();
+            next = null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.CustomerOrderVersion;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveCustomerOrderVersionRepo extends ReactiveMongoRepository<CustomerOrderVersion, String>,
+        ReactiveCustomerOrderVersionRepoCustom {
+}
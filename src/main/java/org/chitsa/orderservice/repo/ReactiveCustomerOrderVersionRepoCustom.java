@@ -0,0 +1,7 @@
+package org.chitsa.orderservice.repo;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCustomerOrderVersionRepoCustom {
+    Mono<Void> increment(String customerId);
+}
@@ -0,0 +1,25 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.CustomerOrderVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+// Same counter as CustomerOrderVersionRepo, so writes made through the reactive stack change the order list ETags too.
+public class ReactiveCustomerOrderVersionRepoCustomImpl implements ReactiveCustomerOrderVersionRepoCustom {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    public ReactiveCustomerOrderVersionRepoCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> increment(String customerId) {
+        return reactiveMongoTemplate.upsert(
+                CustomerOrderVersionRepoCustomImpl.byCustomerId(customerId),
+                CustomerOrderVersionRepoCustomImpl.incrementVersion(),
+                CustomerOrderVersion.class
+        ).then();
+    }
+}
@@ -0,0 +1,21 @@
+package org.chitsa.orderservice.repo;
+
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveOrderRepo extends ReactiveMongoRepository<Order, String> {
+    // OrderSummary is a class, so the fields are listed explicitly to keep the items array out of the result.
+    @Query(value = "{ 'customerId': ?0 }",
+            fields = "{ 'customerId': 1, 'createdAt': 1, 'totalAmount': 1 }",
+            sort = "{ 'createdAt': -1, '_id': -1 }")
+    Flux<OrderSummary> findByCustomerIdOrderByCreatedAtDescIdDesc(String customerId);
+
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'items': 1 }")
+    Mono<Order> findItemsById(String id);
+}
@@ -0,0 +1,79 @@
+package org.chitsa.orderservice.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+// Computes Cognito's SECRET_HASH, Base64(HMAC-SHA256(clientSecret, username + clientId)), from a Mac keyed once at
+// startup. Each call clones that Mac, which skips the provider lookup and key setup; a clone rather than a ThreadLocal
+// because requests may run on short-lived virtual threads. A rotated client secret takes effect on restart.
+@Component
+public class SecretHashCalculator {
+    private static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
+    private static final String ERROR_CREATING_SECRET_HASH = "Error creating secret hash";
+
+    private final byte[] clientId;
+    private final KeyedMac keyedMac;
+
+    @Autowired
+    public SecretHashCalculator(@Value("${spring.security.oauth2.client.registration.app1.client-id}") String clientId,
+                                @Value("${spring.security.oauth2.client.registration.app1.client-secret}")
+                                String clientSecret) {
+        this.clientId = clientId.getBytes(StandardCharsets.UTF_8);
+        this.keyedMac = new KeyedMac(clientSecret);
+    }
+
+    public String calculate(String username) {
+        Mac mac = keyedMac.newMac();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(mac.doFinal(clientId));
+    }
+
+    private static class KeyedMac {
+        private final SecretKeySpec key;
+        private final Mac prototype;
+        private final boolean cloneable;
+
+        private KeyedMac(String secret) {
+            this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256_ALGORITHM);
+            this.prototype = newKeyedMac(key);
+            this.cloneable = isCloneable(prototype);
+        }
+
+        private Mac newMac() {
+            if (!cloneable) {
+                return newKeyedMac(key);
+            }
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                return newKeyedMac(key);
+            }
+        }
+
+        private static Mac newKeyedMac(SecretKeySpec key) {
+            try {
+                Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(ERROR_CREATING_SECRET_HASH, e);
+            }
+        }
+
+        private static boolean isCloneable(Mac mac) {
+            try {
+                mac.clone();
+                return true;
+            } catch (CloneNotSupportedException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,17 +1,34 @@
 package org.chitsa.orderservice.services;
 
+import org.chitsa.orderservice.dto.BulkOrderResponseDto;
+import org.chitsa.orderservice.dto.CustomerOrdersVersionDto;
+import org.chitsa.orderservice.dto.DailyOrderTotalsDto;
 import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderPageDto;
 import org.chitsa.orderservice.dto.OrderRequestDto;
 import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.dto.ProductTotalsDto;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderService {
-    void createOrder(OrderRequestDto  orderRequestDto, String customerId);
-    List<OrderResponseDto> findOrdersByCustomerId(String customerId);
+    OrderResponseDto createOrder(OrderRequestDto orderRequestDto, String customerId, String idempotencyKey);
+    BulkOrderResponseDto createOrders(List<OrderRequestDto> orderRequestDtos, String customerId);
+    OrderPageDto findOrdersByCustomerId(String customerId, long ordersVersion, Instant ordersUpdatedAt, String cursor,
+                                        Integer limit);
+    OrderPageDto findOrdersByCustomerIdBetween(String customerId, Instant ordersUpdatedAt, LocalDateTime from,
+                                               LocalDateTime to, String cursor, Integer limit);
+    List<DailyOrderTotalsDto> findDailyTotalsByCustomerId(String customerId, LocalDateTime from, LocalDateTime to);
+    List<ProductTotalsDto> findTopProductsByCustomerId(String customerId, LocalDateTime from, LocalDateTime to, Integer limit);
+    Stream<OrderResponseDto> streamOrdersByCustomerId(String customerId);
     void deleteOrder(String id);
     void deleteOrder(String id, String customerId);
     OrderResponseDto findByOrderId(String id);
     List<OrderItemDto> findOrderItemsByOrderId(String orderId);
+    long findOrderVersion(String orderId);
+    CustomerOrdersVersionDto findCustomerOrdersVersion(String customerId);
 
 }
@@ -0,0 +1,14 @@
+package org.chitsa.orderservice.services;
+
+import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveOrderService {
+    Mono<OrderResponseDto> createOrder(OrderRequestDto orderRequestDto, String customerId);
+    Flux<OrderResponseDto> findOrdersByCustomerId(String customerId);
+    Flux<OrderItemDto> findOrderItemsByOrderId(String orderId);
+    Mono<Void> deleteOrder(String id, String customerId);
+}
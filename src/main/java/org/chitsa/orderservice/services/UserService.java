@@ -2,13 +2,19 @@ package org.chitsa.orderservice.services;
 
 
 import org.chitsa.orderservice.dto.LoginRequestDto;
+import org.chitsa.orderservice.dto.SignUpStatusDto;
+import org.chitsa.orderservice.dto.UserDeletionResultDto;
 
+import java.util.Collection;
 import java.util.Map;
 
 public interface UserService {
     String createUser(LoginRequestDto.UserRegisterDto userDto);
+    String submitUserCreation(LoginRequestDto.UserRegisterDto userDto);
+    SignUpStatusDto findSignUpStatus(String username);
     void deleteUser(String username);
     boolean doesUserExistsById(String userId);
-    void deleteAllUsers();
+    Map<String, Boolean> doUsersExistById(Collection<String> userIds);
+    UserDeletionResultDto deleteAllUsers();
     Map<String, String> loginUser(LoginRequestDto loginRequestDto);
 }
@@ -0,0 +1,175 @@
+package org.chitsa.orderservice.services.impl;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.model.AdminDeleteUserRequest;
+import com.amazonaws.services.cognitoidp.model.ListUsersRequest;
+import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
+import com.amazonaws.services.cognitoidp.model.UserType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.chitsa.orderservice.dto.UserDeletionResultDto;
+import org.chitsa.orderservice.throttling.TokenBucketRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Deletes every user in the pool. The calling thread lists a page of users and a set of workers deletes them
+// concurrently, both throttled to stay inside Cognito's request quotas. Pagination tokens are not stable while
+// users are being deleted, so every page is the first page of the pool, listed once the previous one is gone.
+// A run stops at the first failure; running it again continues with whoever is left.
+@Component
+public class CognitoBulkUserDeleter {
+    private static final Logger logger = LoggerFactory.getLogger(CognitoBulkUserDeleter.class);
+    private static final int LIST_USERS_PAGE_SIZE = 60;
+    private static final int MAX_PAGES_WITHOUT_PROGRESS = 3;
+    private static final long WORKER_POLL_MILLIS = 100;
+    private static final String DELETIONS_METRIC = "users.bulk-delete.deletions";
+    private static final String ERROR_NO_PROGRESS = "ListUsers keeps returning users that no longer exist";
+
+    private final AWSCognitoIdentityProvider cognitoClient;
+    private final Counter deletedUsers;
+    private final Counter alreadyDeletedUsers;
+    private final Counter failedDeletions;
+
+    @Value("${aws.cognito.userPoolId}")
+    private String cognitoUserPoolId;
+
+    @Value("${users.bulk-delete.concurrency:10}")
+    private int concurrency;
+
+    @Value("${users.bulk-delete.deletes-per-second:20}")
+    private double deletesPerSecond;
+
+    @Value("${users.bulk-delete.list-requests-per-second:5}")
+    private double listRequestsPerSecond;
+
+    @Autowired
+    public CognitoBulkUserDeleter(AWSCognitoIdentityProvider cognitoClient, MeterRegistry meterRegistry) {
+        this.cognitoClient = cognitoClient;
+        this.deletedUsers = Counter.builder(DELETIONS_METRIC).tag("outcome", "deleted").register(meterRegistry);
+        this.alreadyDeletedUsers = Counter.builder(DELETIONS_METRIC).tag("outcome", "already_deleted").register(meterRegistry);
+        this.failedDeletions = Counter.builder(DELETIONS_METRIC).tag("outcome", "failed").register(meterRegistry);
+    }
+
+    public UserDeletionResultDto deleteAll() {
+        DeletionRun run = new DeletionRun();
+        TokenBucketRateLimiter listRateLimiter = new TokenBucketRateLimiter(listRequestsPerSecond, 1);
+        TokenBucketRateLimiter deleteRateLimiter = new TokenBucketRateLimiter(deletesPerSecond, 1);
+        BlockingQueue<PendingDeletion> queue = new ArrayBlockingQueue<>(LIST_USERS_PAGE_SIZE);
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> deleteUsers(queue, deleteRateLimiter, run));
+            }
+            try {
+                int pagesWithoutProgress = 0;
+                while (run.failure.get() == null) {
+                    listRateLimiter.acquire();
+                    List<UserType> users = cognitoClient.listUsers(new ListUsersRequest()
+                            .withUserPoolId(cognitoUserPoolId)
+                            .withLimit(LIST_USERS_PAGE_SIZE)).getUsers();
+                    if (users.isEmpty()) {
+                        break;
+                    }
+                    long deletedBefore = run.deleted.get();
+                    CountDownLatch page = new CountDownLatch(users.size());
+                    for (UserType user : users) {
+                        queue.put(new PendingDeletion(user.getUsername(), page));
+                    }
+                    page.await();
+                    // Listing is eventually consistent, so a page may briefly repeat users that were just deleted.
+                    pagesWithoutProgress = run.deleted.get() == deletedBefore ? pagesWithoutProgress + 1 : 0;
+                    if (pagesWithoutProgress == MAX_PAGES_WITHOUT_PROGRESS) {
+                        run.failure.compareAndSet(null, new IllegalStateException(ERROR_NO_PROGRESS));
+                    }
+                    logger.info("Deleted {} pages, {} users deleted so far", run.pages.incrementAndGet(), run.deleted.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                run.failure.compareAndSet(null, ex);
+            } catch (RuntimeException ex) {
+                run.failure.compareAndSet(null, ex);
+            } finally {
+                run.listingFinished = true;
+            }
+        }
+
+        Exception failure = run.failure.get();
+        if (failure == null) {
+            logger.info("Deleted all users: {} deleted, {} already gone", run.deleted.get(), run.alreadyDeleted.get());
+            return new UserDeletionResultDto(run.deleted.get(), run.alreadyDeleted.get(), true, null);
+        }
+        logger.warn("Bulk user deletion stopped after {} users", run.deleted.get(), failure);
+        return new UserDeletionResultDto(run.deleted.get(), run.alreadyDeleted.get(), false, failure.getMessage());
+    }
+
+    private void deleteUsers(BlockingQueue<PendingDeletion> queue, TokenBucketRateLimiter rateLimiter, DeletionRun run) {
+        try {
+            while (!(run.listingFinished && queue.isEmpty())) {
+                PendingDeletion deletion = queue.poll(WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (deletion == null) {
+                    continue;
+                }
+                try {
+                    // After a failure the rest of the page is only counted down, so the listing thread stops waiting.
+                    if (run.failure.get() == null) {
+                        delete(deletion.username, rateLimiter, run);
+                    }
+                } finally {
+                    deletion.page.countDown();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            run.failure.compareAndSet(null, ex);
+        }
+    }
+
+    private void delete(String username, TokenBucketRateLimiter rateLimiter, DeletionRun run) throws InterruptedException {
+        rateLimiter.acquire();
+        try {
+            cognitoClient.adminDeleteUser(new AdminDeleteUserRequest()
+                    .withUserPoolId(cognitoUserPoolId)
+                    .withUsername(username));
+            run.deleted.incrementAndGet();
+            deletedUsers.increment();
+        } catch (UserNotFoundException ex) {
+            run.alreadyDeleted.incrementAndGet();
+            alreadyDeletedUsers.increment();
+        } catch (RuntimeException ex) {
+            failedDeletions.increment();
+            run.failure.compareAndSet(null, ex);
+        }
+    }
+
+    private static class DeletionRun {
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong alreadyDeleted = new AtomicLong();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private volatile boolean listingFinished;
+    }
+
+    private static class PendingDeletion {
+        private final String username;
+        private final CountDownLatch page;
+
+        private PendingDeletion(String username, CountDownLatch page) {
+            this.username = username;
+            this.page = page;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.chitsa.orderservice.services.impl;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminDeleteUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminDeleteUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminEnableUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminEnableUserResult;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordRequest;
+import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordResult;
+import com.amazonaws.services.cognitoidp.model.AttributeType;
+import com.amazonaws.services.cognitoidp.model.InvalidParameterException;
+import com.amazonaws.services.cognitoidp.model.InvalidPasswordException;
+import com.amazonaws.services.cognitoidp.model.MessageActionType;
+import com.amazonaws.services.cognitoidp.model.UsernameExistsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.chitsa.orderservice.dto.LoginRequestDto;
+import org.chitsa.orderservice.dto.SignUpStatusDto;
+import org.chitsa.orderservice.exception.SignUpCapacityExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Provisions Cognito users on the async client: the user is created first, then enabled and given its permanent
+// password in parallel. A semaphore bounds the sign-ups in flight; throttled calls are retried by the client's
+// retry policy (see CognitoConfig).
+@Component
+public class CognitoSignUpPipeline {
+    private static final Logger log = LoggerFactory.getLogger(CognitoSignUpPipeline.class);
+
+    private static final String ATTRIBUTE_EMAIL = "email";
+    private static final String ATTRIBUTE_PHONE_NUMBER = "phone_number";
+    private static final String UNIQUE_USERNAME_PREFIX = "user_";
+    private static final String ERROR_COGNITO_REQUEST = "Error while processing request";
+    private static final String ERROR_PASSWORD_POLICY = "Password does not conform with the password policy.";
+    private static final String ERROR_INVALID_PARAMETER = "One or more parameters are invalid.";
+    private static final String ERROR_TOO_MANY_SIGN_UPS = "Too many sign-ups in progress, please retry shortly.";
+
+    private final AWSCognitoIdentityProviderAsync cognitoAsyncClient;
+    private final Semaphore inFlightSignUps;
+    private final Duration acquireTimeout;
+    private final Cache<String, SignUpStatusDto> signUpStatuses;
+
+    @Value("${aws.cognito.userPoolId}")
+    private String cognitoUserPoolId;
+
+    @Autowired
+    public CognitoSignUpPipeline(AWSCognitoIdentityProviderAsync cognitoAsyncClient,
+                                 @Value("${users.signup.max-in-flight:200}") int maxInFlight,
+                                 @Value("${users.signup.acquire-timeout:PT1S}") Duration acquireTimeout,
+                                 @Value("${users.signup.status-ttl:PT1H}") Duration statusTtl,
+                                 @Value("${users.signup.status-maximum-size:100000}") long statusMaximumSize,
+                                 MeterRegistry meterRegistry) {
+        this.cognitoAsyncClient = cognitoAsyncClient;
+        this.inFlightSignUps = new Semaphore(maxInFlight);
+        this.acquireTimeout = acquireTimeout;
+        this.signUpStatuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .maximumSize(statusMaximumSize)
+                .build();
+        Gauge.builder("users.signup.in-flight", inFlightSignUps, permits -> maxInFlight - permits.availablePermits())
+                .description("Sign-ups currently being provisioned")
+                .register(meterRegistry);
+    }
+
+    // Provisions the user and returns once it can log in.
+    public String signUp(LoginRequestDto.UserRegisterDto userDto) {
+        String username = UNIQUE_USERNAME_PREFIX + UUID.randomUUID();
+        try {
+            provisionWithPermit(username, userDto).join();
+            return username;
+        } catch (CompletionException ex) {
+            throw translate(ex);
+        }
+    }
+
+    // Starts provisioning and returns the username straight away; progress is available from findStatus. onCreated runs
+    // before the status turns completed, so anyone who sees the completed status also sees its effects.
+    public String submit(LoginRequestDto.UserRegisterDto userDto, Consumer<String> onCreated) {
+        String username = UNIQUE_USERNAME_PREFIX + UUID.randomUUID();
+        CompletableFuture<Void> provisioning = provisionWithPermit(username, userDto);
+        signUpStatuses.put(username, SignUpStatusDto.pending(username));
+        provisioning.whenComplete((ignored, error) -> {
+            if (error == null) {
+                onCreated.accept(username);
+                signUpStatuses.put(username, SignUpStatusDto.completed(username));
+            } else {
+                signUpStatuses.put(username, SignUpStatusDto.failed(username, translate(error).getMessage()));
+            }
+        });
+        return username;
+    }
+
+    public Optional<SignUpStatusDto> findStatus(String username) {
+        return Optional.ofNullable(signUpStatuses.getIfPresent(username));
+    }
+
+    private CompletableFuture<Void> provisionWithPermit(String username, LoginRequestDto.UserRegisterDto userDto) {
+        acquirePermit();
+        try {
+            return provision(username, userDto).whenComplete((ignored, error) -> inFlightSignUps.release());
+        } catch (RuntimeException ex) {
+            inFlightSignUps.release();
+            throw ex;
+        }
+    }
+
+    private CompletableFuture<Void> provision(String username, LoginRequestDto.UserRegisterDto userDto) {
+        return createUser(username, userDto)
+                .thenCompose(created -> CompletableFuture.allOf(
+                                enableUser(username),
+                                setPassword(username, userDto.getPassword()))
+                        // Don't leave a user behind that can never log in.
+                        .exceptionallyCompose(error -> deleteUser(username)
+                                .handle((deleted, deleteError) -> deleteError)
+                                .thenCompose(deleteError -> {
+                                    if (deleteError != null) {
+                                        log.warn("Could not remove partially provisioned user {}", username, deleteError);
+                                    }
+                                    return CompletableFuture.failedFuture(error);
+                                })));
+    }
+
+    private CompletableFuture<Void> createUser(String username, LoginRequestDto.UserRegisterDto userDto) {
+        CompletableAsyncHandler<AdminCreateUserRequest, AdminCreateUserResult> created = new CompletableAsyncHandler<>();
+        cognitoAsyncClient.adminCreateUserAsync(new AdminCreateUserRequest()
+                .withUserPoolId(cognitoUserPoolId)
+                .withUsername(username)
+                .withUserAttributes(
+                        new AttributeType().withName(ATTRIBUTE_EMAIL).withValue(userDto.getEmail()),
+                        new AttributeType().withName(ATTRIBUTE_PHONE_NUMBER).withValue(userDto.getPhoneNumber())
+                )
+                .withTemporaryPassword(userDto.getPassword())
+                .withMessageAction(MessageActionType.SUPPRESS), created);
+        return created
+                .<Void>thenApply(result -> null)
+                // The username is generated per sign-up, so it can only exist if a retried call already created it.
+                .exceptionallyCompose(error -> CompletableAsyncHandler.unwrap(error) instanceof UsernameExistsException
+                        ? CompletableFuture.completedFuture(null)
+                        : CompletableFuture.failedFuture(error));
+    }
+
+    private CompletableFuture<AdminEnableUserResult> enableUser(String username) {
+        CompletableAsyncHandler<AdminEnableUserRequest, AdminEnableUserResult> enabled = new CompletableAsyncHandler<>();
+        cognitoAsyncClient.adminEnableUserAsync(new AdminEnableUserRequest()
+                .withUserPoolId(cognitoUserPoolId)
+                .withUsername(username), enabled);
+        return enabled;
+    }
+
+    private CompletableFuture<AdminSetUserPasswordResult> setPassword(String username, String password) {
+        CompletableAsyncHandler<AdminSetUserPasswordRequest, AdminSetUserPasswordResult> passwordSet =
+                new CompletableAsyncHandler<>();
+        cognitoAsyncClient.adminSetUserPasswordAsync(new AdminSetUserPasswordRequest()
+                .withUserPoolId(cognitoUserPoolId)
+                .withUsername(username)
+                .withPassword(password)
+                .withPermanent(true), passwordSet);
+        return passwordSet;
+    }
+
+    private CompletableFuture<AdminDeleteUserResult> deleteUser(String username) {
+        CompletableAsyncHandler<AdminDeleteUserRequest, AdminDeleteUserResult> deleted = new CompletableAsyncHandler<>();
+        cognitoAsyncClient.adminDeleteUserAsync(new AdminDeleteUserRequest()
+                .withUserPoolId(cognitoUserPoolId)
+                .withUsername(username), deleted);
+        return deleted;
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!inFlightSignUps.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SignUpCapacityExceededException(ERROR_TOO_MANY_SIGN_UPS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SignUpCapacityExceededException(ERROR_TOO_MANY_SIGN_UPS, ex);
+        }
+    }
+
+    private static RuntimeException translate(Throwable error) {
+        Throwable cause = CompletableAsyncHandler.unwrap(error);
+        if (cause instanceof InvalidPasswordException) {
+            return new IllegalArgumentException(ERROR_PASSWORD_POLICY, cause);
+        }
+        if (cause instanceof InvalidParameterException) {
+            return new IllegalArgumentException(ERROR_INVALID_PARAMETER, cause);
+        }
+        return new RuntimeException(ERROR_COGNITO_REQUEST, cause);
+    }
+}
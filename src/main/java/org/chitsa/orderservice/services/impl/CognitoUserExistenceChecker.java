@@ -0,0 +1,117 @@
+package org.chitsa.orderservice.services.impl;
+
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserRequest;
+import com.amazonaws.services.cognitoidp.model.AdminGetUserResult;
+import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Caches whether a Cognito user exists. A user that was found is remembered for longer than one that wasn't, since
+// a missing user may still be signing up. Batch lookups resolve all cache misses with concurrent adminGetUser calls;
+// Cognito has no call that looks up several users by username at once.
+@Component
+public class CognitoUserExistenceChecker {
+    private static final String ERROR_COGNITO_REQUEST = "Error while processing request";
+    private static final String ERROR_BATCH_TOO_LARGE = "Cannot check more than %d users at once.";
+    private static final String CACHE_NAME = "user-existence";
+
+    private final AWSCognitoIdentityProvider cognitoClient;
+    private final AWSCognitoIdentityProviderAsync cognitoAsyncClient;
+    private final Cache<String, Boolean> userExistence;
+
+    @Value("${aws.cognito.userPoolId}")
+    private String cognitoUserPoolId;
+
+    @Value("${users.exists.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Autowired
+    public CognitoUserExistenceChecker(AWSCognitoIdentityProvider cognitoClient,
+                                       AWSCognitoIdentityProviderAsync cognitoAsyncClient,
+                                       @Value("${users.exists.cache.positive-ttl:PT10M}") Duration positiveTtl,
+                                       @Value("${users.exists.cache.negative-ttl:PT30S}") Duration negativeTtl,
+                                       @Value("${users.exists.cache.maximum-size:100000}") long maximumSize,
+                                       MeterRegistry meterRegistry) {
+        this.cognitoClient = cognitoClient;
+        this.cognitoAsyncClient = cognitoAsyncClient;
+        this.userExistence = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.writing((String userId, Boolean exists) -> exists ? positiveTtl : negativeTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userExistence, CACHE_NAME);
+    }
+
+    public boolean exists(String userId) {
+        return userExistence.get(userId, this::lookUp);
+    }
+
+    public Map<String, Boolean> existAll(Collection<String> userIds) {
+        if (userIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException(String.format(ERROR_BATCH_TOO_LARGE, maxBatchSize));
+        }
+        return userExistence.getAll(userIds, this::lookUpAll);
+    }
+
+    public void recordCreated(String userId) {
+        userExistence.put(userId, true);
+    }
+
+    public void recordDeleted(String userId) {
+        userExistence.put(userId, false);
+    }
+
+    public void invalidateAll() {
+        userExistence.invalidateAll();
+    }
+
+    private boolean lookUp(String userId) {
+        try {
+            cognitoClient.adminGetUser(new AdminGetUserRequest()
+                    .withUserPoolId(cognitoUserPoolId)
+                    .withUsername(userId));
+            return true;
+        } catch (UserNotFoundException e) {
+            return false;
+        }
+    }
+
+    private Map<String, Boolean> lookUpAll(Set<? extends String> userIds) {
+        Map<String, CompletableFuture<Boolean>> lookups = new HashMap<>();
+        for (String userId : userIds) {
+            CompletableAsyncHandler<AdminGetUserRequest, AdminGetUserResult> user = new CompletableAsyncHandler<>();
+            cognitoAsyncClient.adminGetUserAsync(new AdminGetUserRequest()
+                    .withUserPoolId(cognitoUserPoolId)
+                    .withUsername(userId), user);
+            lookups.put(userId, user
+                    .thenApply(result -> true)
+                    .exceptionallyCompose(error -> CompletableAsyncHandler.unwrap(error) instanceof UserNotFoundException
+                            ? CompletableFuture.completedFuture(false)
+                            : CompletableFuture.failedFuture(error)));
+        }
+        try {
+            CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            throw new RuntimeException(ERROR_COGNITO_REQUEST, CompletableAsyncHandler.unwrap(ex));
+        }
+        Map<String, Boolean> existence = new HashMap<>();
+        lookups.forEach((userId, lookup) -> existence.put(userId, lookup.join()));
+        return existence;
+    }
+}
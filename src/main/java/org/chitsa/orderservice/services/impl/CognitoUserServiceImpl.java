@@ -1,118 +1,80 @@
 package org.chitsa.orderservice.services.impl;
 
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
-import com.amazonaws.services.cognitoidp.model.AdminCreateUserRequest;
 import com.amazonaws.services.cognitoidp.model.AdminDeleteUserRequest;
-import com.amazonaws.services.cognitoidp.model.AdminEnableUserRequest;
-import com.amazonaws.services.cognitoidp.model.AdminGetUserRequest;
 import com.amazonaws.services.cognitoidp.model.AdminInitiateAuthRequest;
-import com.amazonaws.services.cognitoidp.model.AdminSetUserPasswordRequest;
-import com.amazonaws.services.cognitoidp.model.AttributeType;
 import com.amazonaws.services.cognitoidp.model.AuthenticationResultType;
-import com.amazonaws.services.cognitoidp.model.ListUsersRequest;
-import com.amazonaws.services.cognitoidp.model.ListUsersResult;
-import com.amazonaws.services.cognitoidp.model.MessageActionType;
-import com.amazonaws.services.cognitoidp.model.UserType;
 import com.amazonaws.services.cognitoidp.model.UserNotFoundException;
-import com.amazonaws.services.cognitoidp.model.InvalidPasswordException;
-import com.amazonaws.services.cognitoidp.model.InvalidParameterException;
 import com.amazonaws.services.cognitoidp.model.AWSCognitoIdentityProviderException;
 import com.amazonaws.services.cognitoidp.model.AuthFlowType;
+import io.micrometer.core.annotation.Timed;
 import org.chitsa.orderservice.dto.LoginRequestDto;
+import org.chitsa.orderservice.dto.SignUpStatusDto;
+import org.chitsa.orderservice.dto.UserDeletionResultDto;
 import org.chitsa.orderservice.exception.AuthenticationException;
 import org.chitsa.orderservice.exception.CustomerNotFoundException;
+import org.chitsa.orderservice.security.SecretHashCalculator;
 import org.chitsa.orderservice.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @Service
+@Timed(value = "users.service", histogram = true)
 public class CognitoUserServiceImpl implements UserService {
 
     private final AWSCognitoIdentityProvider cognitoClient;
+    private final CognitoSignUpPipeline signUpPipeline;
+    private final CognitoBulkUserDeleter bulkUserDeleter;
+    private final CognitoUserExistenceChecker userExistenceChecker;
+    private final SecretHashCalculator secretHashCalculator;
 
     @Value("${spring.security.oauth2.client.registration.app1.client-id}")
     private String cognitoClientId;
 
-    @Value("${spring.security.oauth2.client.registration.app1.client-secret}")
-    private String cognitoClientSecret;
-
     @Value("${aws.cognito.userPoolId}")
     private String cognitoUserPoolId;
 
-    private static final String ATTRIBUTE_EMAIL = "email";
-    private static final String ATTRIBUTE_PHONE_NUMBER = "phone_number";
-    private static final String UNIQUE_USERNAME_PREFIX = "user_";
     private static final String SECRET_HASH = "SECRET_HASH";
     private static final String USERNAME = "USERNAME";
     private static final String PASSWORD = "PASSWORD";
     private static final String ERROR_COGNITO_REQUEST = "Error while processing request";
     private static final String ERROR_INVALID_USER_ID = "Invalid user ID.";
     private static final String ERROR_INVALID_CREDENTIALS = "Invalid username or password.";
-    private static final String ERROR_PASSWORD_POLICY = "Password does not conform with the password policy.";
-    private static final String ERROR_INVALID_PARAMETER = "One or more parameters are invalid.";
-    private static final String ERROR_CREATING_SECRET_HASH = "Error creating secret hash";
+    private static final String ERROR_UNKNOWN_SIGN_UP = "No sign-up found for this username.";
 
     @Autowired
-    public CognitoUserServiceImpl(AWSCognitoIdentityProvider cognitoClient) {
+    public CognitoUserServiceImpl(AWSCognitoIdentityProvider cognitoClient, CognitoSignUpPipeline signUpPipeline,
+                                  CognitoBulkUserDeleter bulkUserDeleter,
+                                  CognitoUserExistenceChecker userExistenceChecker,
+                                  SecretHashCalculator secretHashCalculator) {
         this.cognitoClient = cognitoClient;
+        this.signUpPipeline = signUpPipeline;
+        this.bulkUserDeleter = bulkUserDeleter;
+        this.userExistenceChecker = userExistenceChecker;
+        this.secretHashCalculator = secretHashCalculator;
     }
 
     @Override
     public String createUser(LoginRequestDto.UserRegisterDto userDto) {
-        String uniqueUsername = UNIQUE_USERNAME_PREFIX + UUID.randomUUID();
-        try {
-            cognitoClient.adminCreateUser(
-                    new AdminCreateUserRequest()
-                            .withUserPoolId(cognitoUserPoolId)
-                            .withUsername(uniqueUsername)
-                            .withUserAttributes(
-                                    new AttributeType().withName(ATTRIBUTE_EMAIL).withValue(userDto.getEmail()),
-                                    new AttributeType().withName(ATTRIBUTE_PHONE_NUMBER).withValue(userDto.getPhoneNumber())
-                            )
-                            .withTemporaryPassword(userDto.getPassword())
-                            .withMessageAction(MessageActionType.SUPPRESS)
-            );
-            enableUser(uniqueUsername);
-            setPassword(uniqueUsername, userDto.getPassword());
-            return uniqueUsername;
-        } catch (InvalidPasswordException ex) {
-            throw new IllegalArgumentException(ERROR_PASSWORD_POLICY, ex);
-        } catch (InvalidParameterException ex) {
-            throw new IllegalArgumentException(ERROR_INVALID_PARAMETER, ex);
-        } catch (AWSCognitoIdentityProviderException ex) {
-            throw new RuntimeException(ERROR_COGNITO_REQUEST, ex);
-        }
+        String username = signUpPipeline.signUp(userDto);
+        userExistenceChecker.recordCreated(username);
+        return username;
     }
 
-    private void enableUser(String username) {
-        try {
-            cognitoClient.adminEnableUser(new AdminEnableUserRequest()
-                    .withUserPoolId(cognitoUserPoolId)
-                    .withUsername(username));
-        } catch (Exception ex) {
-            throw new RuntimeException(ERROR_COGNITO_REQUEST, ex);
-        }
+    @Override
+    public String submitUserCreation(LoginRequestDto.UserRegisterDto userDto) {
+        return signUpPipeline.submit(userDto, userExistenceChecker::recordCreated);
     }
 
-    private void setPassword(String username, String password) {
-        try {
-            cognitoClient.adminSetUserPassword(new AdminSetUserPasswordRequest()
-                    .withUserPoolId(cognitoUserPoolId)
-                    .withUsername(username)
-                    .withPassword(password)
-                    .withPermanent(true));
-        } catch (Exception ex) {
-            throw new RuntimeException(ERROR_COGNITO_REQUEST, ex);
-        }
+    @Override
+    public SignUpStatusDto findSignUpStatus(String username) {
+        return signUpPipeline.findStatus(username)
+                .orElseThrow(() -> new CustomerNotFoundException(ERROR_UNKNOWN_SIGN_UP));
     }
 
     @Override
@@ -121,27 +83,22 @@ public class CognitoUserServiceImpl implements UserService {
             cognitoClient.adminDeleteUser(new AdminDeleteUserRequest()
                     .withUserPoolId(cognitoUserPoolId)
                     .withUsername(username));
+            userExistenceChecker.recordDeleted(username);
         } catch (UserNotFoundException userNotFoundException) {
+            userExistenceChecker.recordDeleted(username);
             throw new CustomerNotFoundException(ERROR_INVALID_USER_ID, userNotFoundException);
         } catch (Exception ex) {
             throw new RuntimeException(ERROR_COGNITO_REQUEST, ex);
         }
     }
 
+    // An incomplete run can simply be repeated; it continues with the users that are left.
     @Override
-    public void deleteAllUsers() {
+    public UserDeletionResultDto deleteAllUsers() {
         try {
-            ListUsersRequest listUsersRequest = new ListUsersRequest().withUserPoolId(cognitoUserPoolId);
-            ListUsersResult listUsersResult;
-            do {
-                listUsersResult = cognitoClient.listUsers(listUsersRequest);
-                for (UserType user : listUsersResult.getUsers()) {
-                    deleteUser(user.getUsername());
-                }
-                listUsersRequest.setPaginationToken(listUsersResult.getPaginationToken());
-            } while (listUsersResult.getPaginationToken() != null);
-        } catch (Exception ex) {
-            throw new RuntimeException(ERROR_COGNITO_REQUEST, ex);
+            return bulkUserDeleter.deleteAll();
+        } finally {
+            userExistenceChecker.invalidateAll();
         }
     }
 
@@ -152,13 +109,7 @@ public class CognitoUserServiceImpl implements UserService {
             Map<String, String> authParameters = new HashMap<>();
             authParameters.put(USERNAME, username);
             authParameters.put(PASSWORD, loginRequestDto.getPassword());
-            authParameters.put(SECRET_HASH,
-                    calculateSecretHash(
-                            cognitoClientId,
-                            cognitoClientSecret,
-                            username
-                    )
-            );
+            authParameters.put(SECRET_HASH, secretHashCalculator.calculate(username));
             AuthenticationResultType result = cognitoClient.adminInitiateAuth(
                     new AdminInitiateAuthRequest()
                             .withUserPoolId(cognitoUserPoolId)
@@ -179,29 +130,11 @@ public class CognitoUserServiceImpl implements UserService {
 
     @Override
     public boolean doesUserExistsById(String userId) {
-        try {
-            cognitoClient.adminGetUser(new AdminGetUserRequest()
-                    .withUserPoolId(cognitoUserPoolId)
-                    .withUsername(userId));
-            return true;
-        } catch (UserNotFoundException e) {
-            return false;
-        }
+        return userExistenceChecker.exists(userId);
     }
 
-    private String calculateSecretHash(String userPoolClientId, String userPoolClientSecret, String username) {
-        try {
-            final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
-            Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
-            mac.init(new SecretKeySpec(
-                    userPoolClientSecret.getBytes(StandardCharsets.UTF_8),
-                    HMAC_SHA256_ALGORITHM
-            ));
-            mac.update(username.getBytes(StandardCharsets.UTF_8));
-            byte[] hmacResult = mac.doFinal(userPoolClientId.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hmacResult);
-        } catch (Exception e) {
-            throw new RuntimeException(ERROR_CREATING_SECRET_HASH, e);
-        }
+    @Override
+    public Map<String, Boolean> doUsersExistById(Collection<String> userIds) {
+        return userExistenceChecker.existAll(userIds);
     }
 }
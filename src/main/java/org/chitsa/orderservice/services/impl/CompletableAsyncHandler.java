@@ -0,0 +1,31 @@
+package org.chitsa.orderservice.services.impl;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+// Adapts the async Cognito client's callbacks to a CompletableFuture, completed on the client's executor.
+class CompletableAsyncHandler<Q extends AmazonWebServiceRequest, R> extends CompletableFuture<R>
+        implements AsyncHandler<Q, R> {
+
+    @Override
+    public void onError(Exception exception) {
+        completeExceptionally(exception);
+    }
+
+    @Override
+    public void onSuccess(Q request, R result) {
+        complete(result);
+    }
+
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -1,79 +1,407 @@
 package org.chitsa.orderservice.services.impl;
 
+import com.mongodb.ReadPreference;
+import io.micrometer.core.annotation.Timed;
+import org.bson.types.ObjectId;
+import org.chitsa.orderservice.config.CacheConfig;
+import org.chitsa.orderservice.dto.BulkOrderResponseDto;
+import org.chitsa.orderservice.dto.BulkOrderResultDto;
+import org.chitsa.orderservice.dto.CustomerOrdersVersionDto;
+import org.chitsa.orderservice.dto.DailyOrderTotalsDto;
 import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderPageDto;
 import org.chitsa.orderservice.dto.OrderRequestDto;
 import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.dto.ProductTotalsDto;
+import org.chitsa.orderservice.exception.IdempotencyKeyConflictException;
 import org.chitsa.orderservice.exception.OrderNotFoundException;
 import org.chitsa.orderservice.exception.UnauthorizedException;
 import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.IdempotencyRecord;
 import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.chitsa.orderservice.pagination.OrderCursor;
+import org.chitsa.orderservice.repo.CustomerOrderVersionRepo;
+import org.chitsa.orderservice.repo.IdempotencyRecordRepo;
+import org.chitsa.orderservice.repo.OrderReadPreferences;
 import org.chitsa.orderservice.repo.OrderRepo;
 import org.chitsa.orderservice.services.OrderService;
 import org.chitsa.orderservice.validator.OrderValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "orders.service", histogram = true)
 public class OrderServiceImpl implements OrderService {
-    private static final String ORDERS_NOT_FOUND_MESSAGE = "Orders not found";
+    private static final String INVALID_PAGE_SIZE_MESSAGE = "Page size must be greater than 0.";
+    private static final String INVALID_TOP_PRODUCTS_LIMIT_MESSAGE = "Top products limit must be greater than 0.";
+    private static final String INVALID_DATE_RANGE_MESSAGE = "'from' must be before 'to'.";
+    private static final String EMPTY_BULK_REQUEST_MESSAGE = "Bulk request must contain at least one order.";
+    private static final String BULK_REQUEST_TOO_LARGE_MESSAGE = "Bulk request cannot contain more than %d orders.";
     private static final String UNAUTHORIZED_DELETE_MESSAGE = "You are not authorized to delete this order";
+    private static final String IDEMPOTENCY_KEY_TOO_LONG_MESSAGE = "Idempotency key cannot be longer than %d characters.";
+    private static final String IDEMPOTENCY_KEY_REUSED_MESSAGE = "Idempotency key was already used for a different order request.";
+    private static final String IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE = "An order request with this idempotency key is still being processed.";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final String REQUEST_HASH_ALGORITHM = "SHA-256";
+    private static final int OBJECT_ID_LENGTH = 12;
 
     private final OrderRepo orderRepo;
+    private final CustomerOrderVersionRepo customerOrderVersionRepo;
+    private final OrderWriter orderWriter;
+    private final OrderReadPreferences orderReadPreferences;
     private final OrderDtoMapper orderDtoMapper;
     private final OrderValidator orderValidator;
+    private final IdempotencyRecordRepo idempotencyRecordRepo;
+
+    @Value("${orders.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${orders.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${orders.analytics.top-products.default-limit:10}")
+    private int defaultTopProductsLimit;
+
+    @Value("${orders.analytics.top-products.max-limit:100}")
+    private int maxTopProductsLimit;
+
+    @Value("${orders.export.cursor-batch-size:500}")
+    private int exportCursorBatchSize;
+
+    @Value("${orders.bulk.max-batch-size:500}")
+    private int maxBulkBatchSize;
+
+    // Longer than an order write can take, or a slow request could have its key taken over.
+    @Value("${orders.idempotency.pending-lease:PT30S}")
+    private Duration idempotencyPendingLease;
 
     @Autowired
-    public OrderServiceImpl(OrderRepo orderRepo,
-                            OrderDtoMapper orderDtoMapper, OrderValidator orderValidator) {
+    public OrderServiceImpl(OrderRepo orderRepo, CustomerOrderVersionRepo customerOrderVersionRepo,
+                            OrderDtoMapper orderDtoMapper, OrderValidator orderValidator,
+                            IdempotencyRecordRepo idempotencyRecordRepo, OrderWriter orderWriter, OrderReadPreferences orderReadPreferences) {
         this.orderRepo = orderRepo;
+        this.customerOrderVersionRepo = customerOrderVersionRepo;
+        this.orderWriter = orderWriter;
+        this.orderReadPreferences = orderReadPreferences;
         this.orderDtoMapper = orderDtoMapper;
         this.orderValidator = orderValidator;
+        this.idempotencyRecordRepo = idempotencyRecordRepo;
     }
 
     @Override
-    public void createOrder(OrderRequestDto orderRequestDto, String customerId) {
+    public OrderResponseDto createOrder(OrderRequestDto orderRequestDto, String customerId, String idempotencyKey) {
         orderValidator.validateOrderRequest(orderRequestDto, customerId);
-        orderRepo.save(orderDtoMapper.toOrder(orderRequestDto, customerId));
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return saveOrder(orderDtoMapper.toOrder(orderRequestDto, customerId));
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException(String.format(IDEMPOTENCY_KEY_TOO_LONG_MESSAGE, MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        String recordId = customerId + ":" + idempotencyKey;
+        IdempotencyRecord record = claim(recordId, hashOrderRequest(orderRequestDto));
+        if (record.isCompleted()) {
+            return record.getResponse();
+        }
+        Order order = orderDtoMapper.toOrder(orderRequestDto, customerId);
+        order.setId(reservedOrderId(record));
+        OrderResponseDto response;
+        try {
+            response = saveOrder(order);
+        } catch (RuntimeException e) {
+            // The write may have succeeded before the error, or an earlier holder of the claim may have written it.
+            Optional<Order> written = orderRepo.findById(order.getId());
+            if (written.isEmpty()) {
+                // Nothing was written, so a retry may take the key over straight away.
+                idempotencyRecordRepo.expireLease(recordId);
+                throw e;
+            }
+            // Without the outbox the order can be written while its version bump failed.
+            orderWriter.bumpVersion(customerId);
+            response = orderDtoMapper.toOrderResponseDto(written.get());
+        }
+        // If this fails the key stays pending; a retry takes it over once the lease runs out and finds the order.
+        idempotencyRecordRepo.save(record.complete(response));
+        return response;
+    }
+
+    // The saved order already carries its id, total and creation time, so nothing is read back.
+    private OrderResponseDto saveOrder(Order order) {
+        Order saved = orderWriter.insert(order);
+        return orderDtoMapper.toOrderResponseDto(saved);
+    }
+
+    // Returns either the completed record to replay or a pending record that this request now holds.
+    private IdempotencyRecord claim(String recordId, String requestHash) {
+        // Replays of a completed request are answered without a write.
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepo.findById(recordId);
+        if (existing.isEmpty()) {
+            try {
+                return idempotencyRecordRepo.insert(IdempotencyRecord.pending(recordId, requestHash, idempotencyPendingLease));
+            } catch (DuplicateKeyException e) {
+                // A concurrent request claimed the key first.
+                existing = idempotencyRecordRepo.findById(recordId);
+                if (existing.isEmpty()) {
+                    throw new IdempotencyKeyConflictException(IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE, e);
+                }
+            }
+        }
+        IdempotencyRecord record = existing.get();
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_REUSED_MESSAGE);
+        }
+        if (record.isCompleted()) {
+            return record;
+        }
+        // The holder did not finish within its lease, most likely because its instance stopped.
+        return idempotencyRecordRepo.takeOverExpired(recordId, idempotencyPendingLease)
+                .orElseThrow(() -> new IdempotencyKeyConflictException(IDEMPOTENCY_KEY_IN_PROGRESS_MESSAGE));
+    }
+
+    // Derived from the claim instead of stored, so every holder of a claim writes the same order id and one that takes
+    // over an expired claim cannot add a second order next to the one an earlier holder wrote.
+    private static String reservedOrderId(IdempotencyRecord record) {
+        byte[] hash = newDigest().digest((record.getId() + '\u0000' + record.getCreatedAt().toEpochMilli())
+                .getBytes(StandardCharsets.UTF_8));
+        return new ObjectId(Arrays.copyOf(hash, OBJECT_ID_LENGTH)).toHexString();
+    }
+
+    static String hashOrderRequest(OrderRequestDto orderRequestDto) {
+        MessageDigest digest = newDigest();
+        for (OrderItemDto item : orderRequestDto.getItems()) {
+            digest.update((item.getProductName() + '\u0000' + item.getQuantity() + '\u0000' + item.getPrice() + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(REQUEST_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(REQUEST_HASH_ALGORITHM + " is not available", e);
+        }
     }
 
     @Override
-    public List<OrderResponseDto> findOrdersByCustomerId(String customerId) {
-        return orderRepo.findOrdersByCustomerId(customerId)
-                .orElseThrow(() -> new OrderNotFoundException(ORDERS_NOT_FOUND_MESSAGE))
-                .stream()
-                .map(orderDtoMapper::toOrderResponseDto)
-                .collect(Collectors.toList());
+    public BulkOrderResponseDto createOrders(List<OrderRequestDto> orderRequestDtos, String customerId) {
+        if (orderRequestDtos == null || orderRequestDtos.isEmpty()) {
+            throw new IllegalArgumentException(EMPTY_BULK_REQUEST_MESSAGE);
+        }
+        if (orderRequestDtos.size() > maxBulkBatchSize) {
+            throw new IllegalArgumentException(String.format(BULK_REQUEST_TOO_LARGE_MESSAGE, maxBulkBatchSize));
+        }
+        BulkOrderResultDto[] results = new BulkOrderResultDto[orderRequestDtos.size()];
+        List<Order> validOrders = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int index = 0; index < orderRequestDtos.size(); index++) {
+            try {
+                orderValidator.validateOrderRequest(orderRequestDtos.get(index), customerId);
+                validOrders.add(orderDtoMapper.toOrder(orderRequestDtos.get(index), customerId));
+                validIndexes.add(index);
+            } catch (IllegalArgumentException e) {
+                results[index] = BulkOrderResultDto.failed(index, e.getMessage());
+            }
+        }
+        if (!validOrders.isEmpty()) {
+            Map<Integer, String> writeErrors = orderWriter.insertAll(validOrders);
+            for (int position = 0; position < validOrders.size(); position++) {
+                int index = validIndexes.get(position);
+                String writeError = writeErrors.get(position);
+                results[index] = writeError == null
+                        ? BulkOrderResultDto.created(index, validOrders.get(position).getId())
+                        : BulkOrderResultDto.failed(index, writeError);
+            }
+        }
+        return new BulkOrderResponseDto(List.of(results));
+    }
+
+    // Only the default first page is cached; that is what clients poll. The key includes the customer's orders version,
+    // which every write bumps whichever instance made it, so a page is never served under a newer version than its own.
+    @Override
+    @Cacheable(cacheNames = CacheConfig.CUSTOMER_ORDERS_CACHE, key = "#p0 + ':' + #p1",
+            condition = "#p3 == null && #p4 == null")
+    public OrderPageDto findOrdersByCustomerId(String customerId, long ordersVersion, Instant ordersUpdatedAt,
+                                               String cursor, Integer limit) {
+        return findOrderPage(customerId, null, null, cursor, limit, listReadPreference(ordersUpdatedAt));
+    }
+
+    @Override
+    public OrderPageDto findOrdersByCustomerIdBetween(String customerId, Instant ordersUpdatedAt, LocalDateTime from,
+                                                      LocalDateTime to, String cursor, Integer limit) {
+        validateDateRange(from, to);
+        return findOrderPage(customerId, from, to, cursor, limit, listReadPreference(ordersUpdatedAt));
+    }
+
+    @Override
+    public List<DailyOrderTotalsDto> findDailyTotalsByCustomerId(String customerId, LocalDateTime from, LocalDateTime to) {
+        validateDateRange(from, to);
+        return orderRepo.aggregateDailyTotals(customerId, from, to, listReadPreference(customerId));
+    }
+
+    @Override
+    public List<ProductTotalsDto> findTopProductsByCustomerId(String customerId, LocalDateTime from, LocalDateTime to,
+                                                              Integer limit) {
+        validateDateRange(from, to);
+        int topN = limit == null ? defaultTopProductsLimit : limit;
+        if (topN <= 0) {
+            throw new IllegalArgumentException(INVALID_TOP_PRODUCTS_LIMIT_MESSAGE);
+        }
+        return orderRepo.aggregateTopProducts(customerId, from, to, Math.min(topN, maxTopProductsLimit),
+                listReadPreference(customerId));
+    }
+
+    private OrderPageDto findOrderPage(String customerId, LocalDateTime from, LocalDateTime to, String cursor, Integer limit,
+                                       ReadPreference readPreference) {
+        int pageSize = resolvePageSize(limit);
+        OrderCursor orderCursor = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+        // One extra document tells us whether another page exists without a count query.
+        List<OrderSummary> orders = orderRepo.findOrderSummariesPageByCustomerId(customerId, from, to, orderCursor,
+                pageSize + 1, readPreference);
+        boolean hasMore = orders.size() > pageSize;
+        List<OrderSummary> page = hasMore ? orders.subList(0, pageSize) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummary last = page.get(page.size() - 1);
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderPageDto(
+                page.stream()
+                        .map(this::toOrderResponseDto)
+                        .collect(Collectors.toList()),
+                nextCursor
+        );
+    }
+
+    @Override
+    public Stream<OrderResponseDto> streamOrdersByCustomerId(String customerId) {
+        return orderRepo.streamOrderSummariesByCustomerId(customerId, exportCursorBatchSize, listReadPreference(customerId))
+                .map(this::toOrderResponseDto);
     }
 
     @Override
     public List<OrderItemDto> findOrderItemsByOrderId(String orderId) {
-        return findByOrderIdOrElseThrowException(orderId).getItems().stream()
+        ReadPreference readPreference = orderReadPreferences.forDetails();
+        Optional<Order> order = orderRepo.findItemsById(orderId, readPreference);
+        // A secondary may not have a just-created order yet; only the primary can tell that it does not exist.
+        if (order.isEmpty() && !readPreference.equals(ReadPreference.primary())) {
+            order = orderRepo.findItemsById(orderId, ReadPreference.primary());
+        }
+        return order
+                .orElseThrow(() -> new OrderNotFoundException(orderId))
+                .getItems().stream()
                 .map(orderDtoMapper::toOrderItemDto)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ORDERS_CACHE, key = "#p0"),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_ITEMS_CACHE, key = "#p0")
+    })
     public void deleteOrder(String id) {
-        orderRepo.delete(findByOrderIdOrElseThrowException(id));
+        Order order = findByOrderIdOrElseThrowException(id);
+        orderWriter.delete(order);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ORDERS_CACHE, key = "#p0"),
+            @CacheEvict(cacheNames = CacheConfig.ORDER_ITEMS_CACHE, key = "#p0")
+    })
     public void deleteOrder(String id, String customerId) {
         Order order = findByOrderIdOrElseThrowException(id);
         if (!order.getCustomerId().equals(customerId)) {
             throw new UnauthorizedException(UNAUTHORIZED_DELETE_MESSAGE);
         }
-        orderRepo.delete(order);
+        orderWriter.delete(order);
     }
 
+
     @Override
     public OrderResponseDto findByOrderId(String orderId) {
         return orderDtoMapper.toOrderResponseDto(findByOrderIdOrElseThrowException(orderId));
     }
 
+    // Orders never change after they are created, so the version only tells a stale ETag apart from a deleted order.
+    @Override
+    public long findOrderVersion(String orderId) {
+        Long version = orderRepo.findVersionById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId))
+                .getVersion();
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public CustomerOrdersVersionDto findCustomerOrdersVersion(String customerId) {
+        return customerOrderVersionRepo.findById(customerId)
+                .map(version -> new CustomerOrdersVersionDto(version.getVersion(), version.getUpdatedAt()))
+                .orElseGet(() -> new CustomerOrdersVersionDto(0, null));
+    }
+
+    // Orders that predate stored totals still need their items to compute one.
+    private OrderResponseDto toOrderResponseDto(OrderSummary orderSummary) {
+        if (orderSummary.getTotalAmount() != null) {
+            return orderDtoMapper.toOrderResponseDto(orderSummary);
+        }
+        return orderDtoMapper.toOrderResponseDto(findByOrderIdOrElseThrowException(orderSummary.getId()));
+    }
+
+    // After a write of their own, a customer reads from the primary until every secondary that may serve the read
+    // has caught up. This holds across instances because the time of the last write is kept with the customer.
+    private ReadPreference listReadPreference(String customerId) {
+        if (orderReadPreferences.forLists().equals(ReadPreference.primary())) {
+            return ReadPreference.primary();
+        }
+        return listReadPreference(findCustomerOrdersVersion(customerId).getUpdatedAt());
+    }
+
+    // Page reads get the time of the last write from the version document the controller already read for the ETag.
+    private ReadPreference listReadPreference(Instant ordersUpdatedAt) {
+        ReadPreference readPreference = orderReadPreferences.forLists();
+        if (readPreference.equals(ReadPreference.primary())) {
+            return readPreference;
+        }
+        Instant recentWritesFrom = Instant.now().minus(orderReadPreferences.getReadYourWritesWindow());
+        return ordersUpdatedAt != null && ordersUpdatedAt.isAfter(recentWritesFrom) ? ReadPreference.primary() : readPreference;
+    }
+
+    private void validateDateRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException(INVALID_DATE_RANGE_MESSAGE);
+        }
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException(INVALID_PAGE_SIZE_MESSAGE);
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
     public Order findByOrderIdOrElseThrowException(String orderId) {
         return orderRepo.findById(orderId).orElseThrow(() -> new OrderNotFoundException(orderId));
     }
@@ -0,0 +1,299 @@
+package org.chitsa.orderservice.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.chitsa.orderservice.config.CacheConfig;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderEvent;
+import org.chitsa.orderservice.outbox.OrderEventOutbox;
+import org.chitsa.orderservice.repo.CustomerOrderVersionRepo;
+import org.chitsa.orderservice.repo.OrderRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// Writes orders together with their outbox events and the customer's orders version, in one transaction when the outbox
+// is enabled. In group-commit mode single inserts from concurrent callers
+// are queued and written by one flusher thread as a single insertMany per batch, so a checkout spike pays one round
+// trip and one journal wait per batch instead of per order. Each caller still blocks until its own order is written.
+@Component
+public class OrderWriter {
+    private static final Logger log = LoggerFactory.getLogger(OrderWriter.class);
+    private static final String ERROR_INSERT_FAILED = "Could not insert order: ";
+    private static final String ERROR_WRITER_STOPPED = "Order writer is shutting down";
+    private static final String ERROR_BATCH_ABORTED = "Batch insert aborted after write errors: ";
+
+    private final OrderRepo orderRepo;
+    private final CustomerOrderVersionRepo customerOrderVersionRepo;
+    private final CacheManager cacheManager;
+    private final OrderEventOutbox orderEventOutbox;
+    private final OrderDtoMapper orderDtoMapper;
+    private final boolean outboxEnabled;
+    private final boolean groupCommitEnabled;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final BlockingQueue<PendingInsert> pendingInserts;
+    private final DistributionSummary batchSizes;
+    private final Counter queueOverflows;
+    private volatile boolean running;
+    private Thread flusherThread;
+
+    @Autowired
+    public OrderWriter(OrderRepo orderRepo, CustomerOrderVersionRepo customerOrderVersionRepo, CacheManager cacheManager,
+                       OrderEventOutbox orderEventOutbox, OrderDtoMapper orderDtoMapper,
+                       @Value("${orders.outbox.enabled:false}") boolean outboxEnabled,
+                       @Value("${orders.group-commit.enabled:false}") boolean groupCommitEnabled,
+                       @Value("${orders.group-commit.max-batch-size:100}") int maxBatchSize,
+                       @Value("${orders.group-commit.max-delay:PT0.005S}") Duration maxDelay,
+                       @Value("${orders.group-commit.queue-capacity:10000}") int queueCapacity,
+                       MeterRegistry meterRegistry) {
+        this.orderRepo = orderRepo;
+        this.customerOrderVersionRepo = customerOrderVersionRepo;
+        this.cacheManager = cacheManager;
+        this.orderEventOutbox = orderEventOutbox;
+        this.orderDtoMapper = orderDtoMapper;
+        this.outboxEnabled = outboxEnabled;
+        this.groupCommitEnabled = groupCommitEnabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.pendingInserts = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("orders.group-commit.batch.size")
+                .description("Orders written per group commit")
+                .register(meterRegistry);
+        this.queueOverflows = meterRegistry.counter("orders.group-commit.overflows");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (groupCommitEnabled) {
+            running = true;
+            flusherThread = Thread.ofPlatform().name("order-group-commit").daemon(true).start(this::flushLoop);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusherThread != null) {
+            flusherThread.interrupt();
+        }
+    }
+
+    public Order insert(Order order) {
+        if (!running) {
+            return insertOne(order);
+        }
+        PendingInsert pendingInsert = new PendingInsert(order);
+        // A full queue means the flusher is already behind; writing directly keeps the caller moving.
+        if (!pendingInserts.offer(pendingInsert)) {
+            queueOverflows.increment();
+            return insertOne(order);
+        }
+        // The flusher may have stopped between the check above and the offer.
+        if (!running && pendingInserts.remove(pendingInsert)) {
+            return insertOne(order);
+        }
+        try {
+            return pendingInsert.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Returns the write errors keyed by the index of the failed order.
+    public Map<Integer, String> insertAll(List<Order> orders) {
+        try {
+            return orderEventOutbox.execute(() -> insertBatch(orders));
+        } catch (RuntimeException e) {
+            if (!outboxEnabled) {
+                throw e;
+            }
+            // With the outbox enabled a write error aborts the whole transaction, so each order is retried in its own
+            // to tell the ones that fail from the ones that were only rolled back with them.
+            log.warn("Batch insert of {} orders failed, inserting them one by one", orders.size(), e);
+            return insertEach(orders);
+        }
+    }
+
+    private Map<Integer, String> insertBatch(List<Order> orders) {
+        Map<Integer, String> errors = orderRepo.insertAllUnordered(orders);
+        // The server has already aborted the transaction, so there is nothing left to commit.
+        if (outboxEnabled && !errors.isEmpty()) {
+            throw new DataIntegrityViolationException(ERROR_BATCH_ABORTED + errors.values());
+        }
+        List<OrderEvent> events = new ArrayList<>();
+        for (int position = 0; position < orders.size(); position++) {
+            if (!errors.containsKey(position)) {
+                events.add(OrderEvent.created(orderDtoMapper.toOrderResponseDto(orders.get(position))));
+            }
+        }
+        orderEventOutbox.append(events);
+        Set<String> customerIds = new LinkedHashSet<>();
+        for (int position = 0; position < orders.size(); position++) {
+            if (!errors.containsKey(position)) {
+                customerIds.add(orders.get(position).getCustomerId());
+            }
+        }
+        customerIds.forEach(this::bumpVersion);
+        return errors;
+    }
+
+    private Map<Integer, String> insertEach(List<Order> orders) {
+        Map<Integer, String> errors = new HashMap<>();
+        for (int position = 0; position < orders.size(); position++) {
+            try {
+                insertOne(orders.get(position));
+            } catch (RuntimeException e) {
+                errors.put(position, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    private Order insertOne(Order order) {
+        return orderEventOutbox.execute(() -> {
+            Order saved = orderRepo.save(order);
+            orderEventOutbox.append(List.of(OrderEvent.created(orderDtoMapper.toOrderResponseDto(saved))));
+            bumpVersion(saved.getCustomerId());
+            return saved;
+        });
+    }
+
+    public void delete(Order order) {
+        orderEventOutbox.executeWithoutResult(() -> {
+            orderRepo.delete(order);
+            orderEventOutbox.append(List.of(OrderEvent.deleted(order)));
+            bumpVersion(order.getCustomerId());
+        });
+    }
+
+    // Inside the outbox transaction a failed bump rolls the write back. Without the outbox the write has already
+    // happened, so the customer's pages cached here under the old version are dropped; other instances may serve theirs
+    // until the cache entry expires or the next write bumps the version.
+    public void bumpVersion(String customerId) {
+        try {
+            customerOrderVersionRepo.increment(customerId);
+        } catch (RuntimeException e) {
+            evictCachedPages(customerId);
+            throw e;
+        }
+    }
+
+    private void evictCachedPages(String customerId) {
+        Cache cache = cacheManager.getCache(CacheConfig.CUSTOMER_ORDERS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        String keyPrefix = customerId + ":";
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+            caffeineCache.asMap().keySet().removeIf(key -> key.toString().startsWith(keyPrefix));
+        } else {
+            cache.clear();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !pendingInserts.isEmpty()) {
+                collectBatch(batch);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever is still queued (or was taken but not written) fails rather than leaving its caller waiting.
+        pendingInserts.drainTo(batch);
+        batch.forEach(pendingInsert -> pendingInsert.result.completeExceptionally(
+                new IllegalStateException(ERROR_WRITER_STOPPED)));
+    }
+
+    // Waits for the first insert, then gathers more until the batch is full or maxDelay has passed since the first.
+    private void collectBatch(List<PendingInsert> batch) throws InterruptedException {
+        batch.add(pendingInserts.take());
+        long deadline = System.nanoTime() + maxDelay.toNanos();
+        while (batch.size() < maxBatchSize) {
+            pendingInserts.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            PendingInsert next = pendingInserts.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingInsert> batch) {
+        batchSizes.record(batch.size());
+        List<Order> orders = batch.stream().map(pendingInsert -> pendingInsert.order).toList();
+        try {
+            Map<Integer, String> errors = orderEventOutbox.execute(() -> insertBatch(orders));
+            for (int position = 0; position < batch.size(); position++) {
+                String error = errors.get(position);
+                if (error == null) {
+                    batch.get(position).result.complete(orders.get(position));
+                } else {
+                    batch.get(position).result.completeExceptionally(
+                            new DataIntegrityViolationException(ERROR_INSERT_FAILED + error));
+                }
+            }
+        } catch (RuntimeException e) {
+            if (!outboxEnabled) {
+                log.warn("Group commit of {} orders failed", batch.size(), e);
+                batch.forEach(pendingInsert -> pendingInsert.result.completeExceptionally(e));
+                return;
+            }
+            // The transaction was rolled back, so one caller's bad order must not fail the others: each is retried
+            // in its own transaction and its caller gets that insert's own result.
+            log.warn("Group commit of {} orders failed, inserting them one by one", batch.size(), e);
+            batch.forEach(this::insertAlone);
+        }
+    }
+
+    private void insertAlone(PendingInsert pendingInsert) {
+        try {
+            pendingInsert.result.complete(insertOne(pendingInsert.order));
+        } catch (RuntimeException e) {
+            pendingInsert.result.completeExceptionally(e);
+        }
+    }
+
+    private static final class PendingInsert {
+        private final Order order;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+
+        private PendingInsert(Order order) {
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.chitsa.orderservice.services.impl;
+
+import org.chitsa.orderservice.config.OrderPartitioningProperties;
+import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.exception.OrderNotFoundException;
+import org.chitsa.orderservice.exception.UnauthorizedException;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.chitsa.orderservice.repo.ReactiveCustomerOrderVersionRepo;
+import org.chitsa.orderservice.repo.ReactiveOrderRepo;
+import org.chitsa.orderservice.services.ReactiveOrderService;
+import org.chitsa.orderservice.validator.OrderValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderServiceImpl implements ReactiveOrderService {
+    private static final String UNAUTHORIZED_DELETE_MESSAGE = "You are not authorized to delete this order";
+    private static final String ERROR_OUTBOX_UNSUPPORTED =
+            "The reactive stack does not write order events; set orders.outbox.enabled=false";
+    private static final String ERROR_PARTITIONING_UNSUPPORTED =
+            "The reactive stack only uses the orders collection; remove orders.partitioning.partitions";
+
+    private final ReactiveOrderRepo reactiveOrderRepo;
+    private final ReactiveCustomerOrderVersionRepo reactiveCustomerOrderVersionRepo;
+    private final OrderDtoMapper orderDtoMapper;
+    private final OrderValidator orderValidator;
+
+    @Value("${orders.reactive.list-prefetch:256}")
+    private int listPrefetch;
+
+    @Autowired
+    public ReactiveOrderServiceImpl(ReactiveOrderRepo reactiveOrderRepo,
+                                    ReactiveCustomerOrderVersionRepo reactiveCustomerOrderVersionRepo,
+                                    OrderDtoMapper orderDtoMapper, OrderValidator orderValidator,
+                                    @Value("${orders.outbox.enabled:false}") boolean outboxEnabled,
+                                    OrderPartitioningProperties partitioningProperties) {
+        // Writes here are not transactional, so they would silently skip the outbox events consumers rely on.
+        if (outboxEnabled) {
+            throw new IllegalStateException(ERROR_OUTBOX_UNSUPPORTED);
+        }
+        // Reads and writes here bypass OrderPartitionRouter, so they would miss orders owned by other partitions.
+        if (!partitioningProperties.getPartitions().isEmpty()) {
+            throw new IllegalStateException(ERROR_PARTITIONING_UNSUPPORTED);
+        }
+        this.reactiveOrderRepo = reactiveOrderRepo;
+        this.reactiveCustomerOrderVersionRepo = reactiveCustomerOrderVersionRepo;
+        this.orderDtoMapper = orderDtoMapper;
+        this.orderValidator = orderValidator;
+    }
+
+    @Override
+    public Mono<OrderResponseDto> createOrder(OrderRequestDto orderRequestDto, String customerId) {
+        return Mono.fromCallable(() -> {
+                    orderValidator.validateOrderRequest(orderRequestDto, customerId);
+                    return orderDtoMapper.toOrder(orderRequestDto, customerId);
+                })
+                .flatMap(reactiveOrderRepo::save)
+                .flatMap(order -> reactiveCustomerOrderVersionRepo.increment(customerId).thenReturn(order))
+                .map(orderDtoMapper::toOrderResponseDto);
+    }
+
+    // Demand from the subscriber drives how many documents the driver fetches, at most listPrefetch at a time.
+    @Override
+    public Flux<OrderResponseDto> findOrdersByCustomerId(String customerId) {
+        return reactiveOrderRepo.findByCustomerIdOrderByCreatedAtDescIdDesc(customerId)
+                .limitRate(listPrefetch)
+                .concatMap(this::toOrderResponseDto);
+    }
+
+    @Override
+    public Flux<OrderItemDto> findOrderItemsByOrderId(String orderId) {
+        return reactiveOrderRepo.findItemsById(orderId)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(orderId)))
+                .flatMapIterable(order -> order.getItems())
+                .map(orderDtoMapper::toOrderItemDto);
+    }
+
+    @Override
+    public Mono<Void> deleteOrder(String id, String customerId) {
+        return reactiveOrderRepo.findById(id)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(id)))
+                .flatMap(order -> order.getCustomerId().equals(customerId)
+                        ? reactiveOrderRepo.delete(order).then(reactiveCustomerOrderVersionRepo.increment(customerId))
+                        : Mono.error(new UnauthorizedException(UNAUTHORIZED_DELETE_MESSAGE)));
+    }
+
+    // Orders that predate stored totals still need their items to compute one.
+    private Mono<OrderResponseDto> toOrderResponseDto(OrderSummary orderSummary) {
+        if (orderSummary.getTotalAmount() != null) {
+            return Mono.just(orderDtoMapper.toOrderResponseDto(orderSummary));
+        }
+        return reactiveOrderRepo.findById(orderSummary.getId())
+                .map(orderDtoMapper::toOrderResponseDto);
+    }
+}
@@ -0,0 +1,38 @@
+package org.chitsa.orderservice.throttling;
+
+import java.util.concurrent.TimeUnit;
+
+// Hands out permits at a fixed rate, letting up to maxBurst permits through at once after a quiet period.
+// Callers reserve the next free slot under the lock and sleep outside it, so waiting threads don't serialise.
+public class TokenBucketRateLimiter {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private long nextFreeSlotNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int maxBurst) {
+        if (permitsPerSecond <= 0 || maxBurst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1.");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = (maxBurst - 1) * intervalNanos;
+        this.nextFreeSlotNanos = System.nanoTime() - burstNanos;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        // Unused permits accumulate only up to the burst size.
+        if (nextFreeSlotNanos < now - burstNanos) {
+            nextFreeSlotNanos = now - burstNanos;
+        }
+        long slot = nextFreeSlotNanos;
+        nextFreeSlotNanos += intervalNanos;
+        return slot - now;
+    }
+}
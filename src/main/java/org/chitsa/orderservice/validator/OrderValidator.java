@@ -1,9 +1,15 @@
 package org.chitsa.orderservice.validator;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.chitsa.orderservice.dto.OrderItemDto;
 import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Component
@@ -15,49 +21,100 @@ public class OrderValidator {
     private static final String ERROR_PRODUCT_NAME_EMPTY = "Product name cannot be null or empty.";
     private static final String ERROR_QUANTITY_NOT_POSITIVE = "Quantity must be greater than 0.";
     private static final String ERROR_PRICE_NOT_POSITIVE = "Price must be greater than 0.";
+    private static final String ERROR_PRICE_NOT_MINOR_UNITS = "Price cannot have more than 2 decimal places.";
+    private static final String ERROR_PRICE_OUT_OF_RANGE = "Price is too large.";
+
+    private static final String VALIDATION_FAILURES_METRIC = "orders.validation.failures";
+
+    private final Counter orderRequestNullFailures;
+    private final Counter customerIdEmptyFailures;
+    private final Counter orderItemsEmptyFailures;
+    private final Counter productNameEmptyFailures;
+    private final Counter quantityNotPositiveFailures;
+    private final Counter priceNotPositiveFailures;
+    private final Counter priceNotMinorUnitsFailures;
+    private final Counter priceOutOfRangeFailures;
+
+    @Autowired
+    public OrderValidator(MeterRegistry meterRegistry) {
+        this.orderRequestNullFailures = failureCounter(meterRegistry, "order_request_null");
+        this.customerIdEmptyFailures = failureCounter(meterRegistry, "customer_id_empty");
+        this.orderItemsEmptyFailures = failureCounter(meterRegistry, "order_items_empty");
+        this.productNameEmptyFailures = failureCounter(meterRegistry, "product_name_empty");
+        this.quantityNotPositiveFailures = failureCounter(meterRegistry, "quantity_not_positive");
+        this.priceNotPositiveFailures = failureCounter(meterRegistry, "price_not_positive");
+        this.priceNotMinorUnitsFailures = failureCounter(meterRegistry, "price_not_minor_units");
+        this.priceOutOfRangeFailures = failureCounter(meterRegistry, "price_out_of_range");
+    }
 
     public void validateOrderRequest(OrderRequestDto orderRequestDto, String customerId) {
         validateNotNull(orderRequestDto);
-        validateNotEmpty(customerId, ERROR_CUSTOMER_ID_EMPTY);
+        validateNotEmpty(customerId, ERROR_CUSTOMER_ID_EMPTY, customerIdEmptyFailures);
         validateNotEmpty(orderRequestDto.getItems());
         validateOrderItems(orderRequestDto.getItems());
     }
 
     private void validateOrderItems(List<OrderItemDto> orderItemList) {
         for (OrderItemDto item : orderItemList) {
-            validateNotEmpty(item.getProductName(), ERROR_PRODUCT_NAME_EMPTY);
+            validateNotEmpty(item.getProductName(), ERROR_PRODUCT_NAME_EMPTY, productNameEmptyFailures);
             validatePositive(item.getQuantity());
             validatePositive(item.getPrice());
+            validateMinorUnits(item.getPrice());
         }
     }
 
     private void validateNotNull(Object object) {
         if (object == null) {
-            throw new IllegalArgumentException(OrderValidator.ERROR_ORDER_REQUEST_NULL);
+            reject(ERROR_ORDER_REQUEST_NULL, orderRequestNullFailures);
         }
     }
 
-    private void validateNotEmpty(String value, String message) {
+    private void validateNotEmpty(String value, String message, Counter failures) {
         if (value == null || value.trim().isEmpty()) {
-            throw new IllegalArgumentException(message);
+            reject(message, failures);
         }
     }
 
     private void validateNotEmpty(List<?> list) {
         if (list == null || list.isEmpty()) {
-            throw new IllegalArgumentException(OrderValidator.ERROR_ORDER_ITEMS_EMPTY);
+            reject(ERROR_ORDER_ITEMS_EMPTY, orderItemsEmptyFailures);
         }
     }
 
     private void validatePositive(Double value) {
         if (value == null || value <= 0) {
-            throw new IllegalArgumentException(OrderValidator.ERROR_PRICE_NOT_POSITIVE);
+            reject(ERROR_PRICE_NOT_POSITIVE, priceNotPositiveFailures);
+        }
+    }
+
+    // Prices are stored in minor units, so anything finer would otherwise be rounded away. The conversion also fails for
+    // prices whose minor units do not fit in a long.
+    private void validateMinorUnits(Double price) {
+        try {
+            OrderDtoMapper.toMinorUnits(price);
+        } catch (ArithmeticException e) {
+            if (BigDecimal.valueOf(price).stripTrailingZeros().scale() > OrderItem.MINOR_UNIT_SCALE) {
+                reject(ERROR_PRICE_NOT_MINOR_UNITS, priceNotMinorUnitsFailures);
+            }
+            reject(ERROR_PRICE_OUT_OF_RANGE, priceOutOfRangeFailures);
         }
     }
 
     private void validatePositive(Integer value) {
         if (value == null || value <= 0) {
-            throw new IllegalArgumentException(OrderValidator.ERROR_QUANTITY_NOT_POSITIVE);
+            reject(ERROR_QUANTITY_NOT_POSITIVE, quantityNotPositiveFailures);
         }
     }
-}
\ No newline at end of file
+
+    private void reject(String message, Counter failures) {
+        failures.increment();
+        throw new IllegalArgumentException(message);
+    }
+
+    private static Counter failureCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(VALIDATION_FAILURES_METRIC)
+                .description("Order requests rejected by validation")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
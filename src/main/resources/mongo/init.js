@@ -8,3 +8,5 @@ db.createUser({
     ]
 });
 db.createCollection("orders");
+db.orders.createIndex({customerId: 1, createdAt: -1, _id: -1}, {name: "customer_created_at_id"});
+db.createCollection("idempotency_keys");
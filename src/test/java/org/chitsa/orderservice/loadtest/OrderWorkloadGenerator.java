@@ -0,0 +1,285 @@
+package org.chitsa.orderservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop workload against a running service started with the loadtest profile.
+ *
+ * <pre>
+ * mvn -Ploadtest spring-boot:run -Dspring-boot.run.profiles=loadtest
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="--concurrency=64 --duration=PT60S"
+ * </pre>
+ *
+ * Options: --base-url, --concurrency, --customers, --duration, --warmup and
+ * --mix=create:30,list:40,details:20,delete:10 (relative weights).
+ */
+public class OrderWorkloadGenerator {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int MAX_KNOWN_ORDERS_PER_CUSTOMER = 200;
+
+    enum Operation { CREATE, LIST, DETAILS, DELETE }
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Operation[] weightedOperations;
+    private final List<Customer> customers = new ArrayList<>();
+    private final HttpClient httpClient;
+
+    OrderWorkloadGenerator(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        this.duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+        this.warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        this.weightedOperations = parseMix(options.getOrDefault("mix", "create:30,list:40,details:20,delete:10"));
+        int customerCount = Integer.parseInt(options.getOrDefault("customers", "100"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(new Customer("loadtest-customer-" + i));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+        }
+        new OrderWorkloadGenerator(options).run();
+    }
+
+    void run() throws Exception {
+        for (Customer customer : customers) {
+            customer.token = issueToken(customer.subject);
+        }
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+
+        List<Future<Map<Operation, Samples>>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> runWorker(warmupEnd, end)));
+            }
+        }
+
+        Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, Samples>> worker : workers) {
+            worker.get().forEach((operation, samples) ->
+                    merged.computeIfAbsent(operation, key -> new Samples()).addAll(samples));
+        }
+        report(merged);
+    }
+
+    private Map<Operation, Samples> runWorker(long warmupEnd, long end) {
+        Map<Operation, Samples> samplesByOperation = new EnumMap<>(Operation.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            Customer customer = customers.get(random.nextInt(customers.size()));
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = execute(operation, customer, random);
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long finished = System.nanoTime();
+            if (start >= warmupEnd) {
+                samplesByOperation.computeIfAbsent(operation, key -> new Samples()).add(finished - start, success);
+            }
+        }
+        return samplesByOperation;
+    }
+
+    private boolean execute(Operation operation, Customer customer, ThreadLocalRandom random)
+            throws IOException, InterruptedException {
+        switch (operation) {
+            case CREATE -> {
+                HttpResponse<String> response = send(customer, "POST", "/api/orders/create", orderJson(random));
+                if (response.statusCode() != 201) {
+                    return false;
+                }
+                customer.remember(OBJECT_MAPPER.readTree(response.body()).path("orderId").asText());
+                return true;
+            }
+            case LIST -> {
+                HttpResponse<String> response = send(customer, "GET", "/api/orders/customer-orders", null);
+                if (response.statusCode() != 200) {
+                    return false;
+                }
+                for (JsonNode order : OBJECT_MAPPER.readTree(response.body()).path("orders")) {
+                    customer.remember(order.path("orderId").asText());
+                }
+                return true;
+            }
+            case DETAILS -> {
+                String orderId = customer.knownOrders.peekFirst();
+                if (orderId == null) {
+                    return execute(Operation.LIST, customer, random);
+                }
+                int status = send(customer, "GET", "/api/orders/details/" + orderId, null).statusCode();
+                return status == 200 || status == 404;
+            }
+            case DELETE -> {
+                String orderId = customer.knownOrders.pollLast();
+                if (orderId == null) {
+                    return execute(Operation.LIST, customer, random);
+                }
+                int status = send(customer, "DELETE", "/api/orders/delete/" + orderId, null).statusCode();
+                return status == 200 || status == 404;
+            }
+            default -> throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private HttpResponse<String> send(Customer customer, String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + customer.token);
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String issueToken(String subject) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/loadtest/token?subject=" + subject))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Could not issue a token, is the service running with the loadtest profile?");
+        }
+        return OBJECT_MAPPER.readTree(response.body()).path("accessToken").asText();
+    }
+
+    private static String orderJson(ThreadLocalRandom random) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        int itemCount = 1 + random.nextInt(5);
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"productName\":\"Product ").append(random.nextInt(1000))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(3))
+                    .append(",\"price\":").append(1 + random.nextInt(500)).append(".99}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static Operation[] parseMix(String mix) {
+        List<Operation> operations = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] nameWeight = entry.split(":");
+            Operation operation = Operation.valueOf(nameWeight[0].trim().toUpperCase());
+            for (int i = 0; i < Integer.parseInt(nameWeight[1].trim()); i++) {
+                operations.add(operation);
+            }
+        }
+        return operations.toArray(new Operation[0]);
+    }
+
+    private void report(Map<Operation, Samples> samplesByOperation) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Samples total = new Samples();
+        for (Map.Entry<Operation, Samples> entry : samplesByOperation.entrySet()) {
+            printRow(entry.getKey().name().toLowerCase(), entry.getValue(), seconds);
+            total.addAll(entry.getValue());
+        }
+        printRow("total", total, seconds);
+    }
+
+    private static void printRow(String name, Samples samples, double seconds) {
+        long[] sorted = samples.sorted();
+        System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, sorted.length, samples.errors, sorted.length / seconds,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                percentile(sorted, 99.9), percentile(sorted, 100));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static class Customer {
+        private final String subject;
+        private final ConcurrentLinkedDeque<String> knownOrders = new ConcurrentLinkedDeque<>();
+        private volatile String token;
+
+        private Customer(String subject) {
+            this.subject = subject;
+        }
+
+        private void remember(String orderId) {
+            if (!knownOrders.contains(orderId)) {
+                knownOrders.addFirst(orderId);
+                if (knownOrders.size() > MAX_KNOWN_ORDERS_PER_CUSTOMER) {
+                    knownOrders.pollLast();
+                }
+            }
+        }
+    }
+
+    private static class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        private long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
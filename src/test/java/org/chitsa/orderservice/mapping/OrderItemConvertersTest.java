@@ -0,0 +1,61 @@
+package org.chitsa.orderservice.mapping;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.chitsa.orderservice.model.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderItemConvertersTest {
+
+    @Test
+    void writesCompactFieldsAndReadsThemBack() {
+        OrderItem item = new OrderItem("Widget", 3, 1999L);
+
+        Document document = new OrderItemConverters.Writing().convert(item);
+        OrderItem read = new OrderItemConverters.Reading().convert(document);
+
+        assertInstanceOf(Binary.class, document.get(OrderItemConverters.FIELD_PRODUCT_ID));
+        assertEquals(1999L, document.get(OrderItemConverters.FIELD_PRICE_MINOR));
+        assertEquals(item.getProductId(), read.getProductId());
+        assertEquals("Widget", read.getProductName());
+        assertEquals(3, read.getQuantity());
+        assertEquals(1999L, read.getPriceMinorUnits());
+    }
+
+    @Test
+    void roundsLegacyPricesFinerThanMinorUnits() {
+        Document legacy = new Document("productName", "Screw")
+                .append("quantity", 100)
+                .append("price", 0.125);
+
+        assertEquals(12L, new OrderItemConverters.Reading().convert(legacy).getPriceMinorUnits());
+    }
+
+    @Test
+    void tellsExactLegacyPricesFromOnesThatNeedRounding() {
+        assertTrue(OrderItemConverters.isExactInMinorUnits(5.5));
+        assertTrue(OrderItemConverters.isExactInMinorUnits(0.29));
+        assertFalse(OrderItemConverters.isExactInMinorUnits(0.125));
+        assertFalse(OrderItemConverters.isExactInMinorUnits(1e300));
+    }
+
+    @Test
+    void readsLegacyFields() {
+        Document legacy = new Document("productId", "legacy-id")
+                .append("productName", "Gadget")
+                .append("quantity", 2)
+                .append("price", 5.5);
+
+        OrderItem read = new OrderItemConverters.Reading().convert(legacy);
+
+        assertEquals("legacy-id", read.getProductId());
+        assertEquals("Gadget", read.getProductName());
+        assertEquals(2, read.getQuantity());
+        assertEquals(550L, read.getPriceMinorUnits());
+    }
+}
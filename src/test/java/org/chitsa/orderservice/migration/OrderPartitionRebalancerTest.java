@@ -0,0 +1,142 @@
+package org.chitsa.orderservice.migration;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.repo.OrderPartition;
+import org.chitsa.orderservice.repo.OrderPartitionRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Every order starts in the old partition and belongs to the new one under the current ring.
+class OrderPartitionRebalancerTest {
+    private static final String OLD_COLLECTION = "orders_p0";
+    private static final String NEW_COLLECTION = "orders_p1";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate oldTemplate = mock(MongoTemplate.class);
+    private final MongoTemplate newTemplate = mock(MongoTemplate.class);
+    private final OrderPartition oldPartition = new OrderPartition("p0", oldTemplate, OLD_COLLECTION);
+    private final OrderPartition newPartition = new OrderPartition("p1", newTemplate, NEW_COLLECTION);
+    private final OrderPartitionRouter partitionRouter = mock(OrderPartitionRouter.class);
+    private final BulkOperations bulkOperations = mock(BulkOperations.class);
+    private final Order first = order("order-1");
+    private final Order second = order("order-2");
+    private OrderPartitionRebalancer rebalancer;
+
+    @BeforeEach
+    void setUp() {
+        rebalancer = new OrderPartitionRebalancer(partitionRouter);
+        ReflectionTestUtils.setField(rebalancer, "batchSize", 100);
+        when(partitionRouter.all()).thenReturn(List.of(oldPartition, newPartition));
+        when(partitionRouter.ownerOf(anyString())).thenReturn(newPartition);
+        when(oldTemplate.stream(any(Query.class), eq(Order.class), eq(OLD_COLLECTION))).thenReturn(Stream.of(first, second));
+        when(newTemplate.stream(any(Query.class), eq(Order.class), eq(NEW_COLLECTION))).thenReturn(Stream.empty());
+        when(newTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, NEW_COLLECTION)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(oldTemplate.remove(any(Query.class), eq(Order.class), eq(OLD_COLLECTION)))
+                .thenAnswer(invocation -> DeleteResult.acknowledged(idsIn(invocation.getArgument(0)).size()));
+        when(newTemplate.remove(any(Query.class), eq(Order.class), eq(NEW_COLLECTION)))
+                .thenReturn(DeleteResult.acknowledged(1));
+    }
+
+    @Test
+    void copiesThenDeletesFromTheOldPartition() {
+        when(oldTemplate.find(any(Query.class), eq(Order.class), eq(OLD_COLLECTION))).thenReturn(List.of(first, second));
+
+        assertEquals(2, rebalancer.rebalance());
+
+        verify(bulkOperations).insert(List.of(first, second));
+        assertEquals(Set.of("order-1", "order-2"), idsIn(removedFrom(oldTemplate, OLD_COLLECTION)));
+        verify(newTemplate, never()).remove(any(Query.class), eq(Order.class), eq(NEW_COLLECTION));
+    }
+
+    @Test
+    void removesTheCopyOfAnOrderDeletedDuringTheMove() {
+        // order-2 was deleted by its customer after it was read but before the move finished.
+        when(oldTemplate.find(any(Query.class), eq(Order.class), eq(OLD_COLLECTION))).thenReturn(List.of(first));
+
+        assertEquals(1, rebalancer.rebalance());
+
+        assertEquals(Set.of("order-2"), idsIn(removedFrom(newTemplate, NEW_COLLECTION)));
+        assertEquals(Set.of("order-1"), idsIn(removedFrom(oldTemplate, OLD_COLLECTION)));
+    }
+
+    @Test
+    void finishesAMoveInterruptedAfterTheCopy() {
+        // A crashed run already copied both orders, so the copy only reports duplicates.
+        when(bulkOperations.execute()).thenThrow(bulkFailure(DUPLICATE_KEY, DUPLICATE_KEY));
+        when(oldTemplate.find(any(Query.class), eq(Order.class), eq(OLD_COLLECTION))).thenReturn(List.of(first, second));
+
+        assertEquals(2, rebalancer.rebalance());
+
+        assertEquals(Set.of("order-1", "order-2"), idsIn(removedFrom(oldTemplate, OLD_COLLECTION)));
+    }
+
+    @Test
+    void keepsTheOriginalsWhenTheCopyFails() {
+        BulkOperationException failure = bulkFailure(DUPLICATE_KEY, 2);
+        when(bulkOperations.execute()).thenThrow(failure);
+
+        assertSame(failure, assertThrows(BulkOperationException.class, () -> rebalancer.rebalance()));
+
+        verify(oldTemplate, never()).remove(any(Query.class), eq(Order.class), eq(OLD_COLLECTION));
+    }
+
+    private static Query removedFrom(MongoTemplate template, String collection) {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(template).remove(query.capture(), eq(Order.class), eq(collection));
+        return query.getValue();
+    }
+
+    private static Set<Object> idsIn(Query query) {
+        Document in = (Document) query.getQueryObject().get("id");
+        return new HashSet<>((Collection<?>) in.get("$in"));
+    }
+
+    private static BulkOperationException bulkFailure(int... codes) {
+        List<BulkWriteError> errors = new ArrayList<>();
+        for (int index = 0; index < codes.length; index++) {
+            errors.add(new BulkWriteError(codes[index], "write failed", new BsonDocument(), index));
+        }
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), errors, null, new ServerAddress(), Set.of()));
+    }
+
+    private static Order order(String id) {
+        Order order = new Order("customer-1", List.of(), BigDecimal.ZERO);
+        order.setId(id);
+        return order;
+    }
+}
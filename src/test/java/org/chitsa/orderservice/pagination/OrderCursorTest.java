@@ -0,0 +1,31 @@
+package org.chitsa.orderservice.pagination;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCursorTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+        String orderId = new ObjectId().toHexString();
+
+        OrderCursor decoded = OrderCursor.decode(new OrderCursor(createdAt, orderId).encode());
+
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals(orderId, decoded.getOrderId());
+    }
+
+    @Test
+    void decodeRejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("MjAyNS0wMy0xNA"));
+        assertThrows(IllegalArgumentException.class,
+                () -> OrderCursor.decode(new OrderCursor(LocalDateTime.now(), "abc").encode()));
+    }
+}
@@ -0,0 +1,106 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.MongoClientSettings;
+import org.chitsa.orderservice.config.OrderPartitioningProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderPartitionRouterTest {
+    private static final List<String> CUSTOMERS = IntStream.range(0, 10_000)
+            .mapToObj(index -> "customer-" + index)
+            .collect(Collectors.toList());
+
+    @Test
+    void ownershipIsTheSameOnEveryInstance() {
+        OrderPartitionRouter first = router(List.of("p0", "p1", "p2"), List.of(), List.of());
+        OrderPartitionRouter second = router(List.of("p0", "p1", "p2"), List.of(), List.of());
+
+        for (String customer : CUSTOMERS) {
+            assertEquals(first.ownerOf(customer).getName(), second.ownerOf(customer).getName());
+        }
+    }
+
+    @Test
+    void addingAPartitionOnlyMovesCustomersToIt() {
+        OrderPartitionRouter before = router(List.of("p0", "p1", "p2"), List.of("p0", "p1"), List.of());
+        OrderPartitionRouter after = router(List.of("p0", "p1", "p2"), List.of("p0", "p1", "p2"), List.of());
+
+        long moved = 0;
+        for (String customer : CUSTOMERS) {
+            String oldOwner = before.ownerOf(customer).getName();
+            String newOwner = after.ownerOf(customer).getName();
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("p2", newOwner);
+                moved++;
+            }
+        }
+        // Roughly a third of the customers, not a reshuffle of everyone.
+        assertTrue(moved > CUSTOMERS.size() / 5 && moved < CUSTOMERS.size() / 2, "moved " + moved);
+    }
+
+    @Test
+    void virtualNodesSpreadCustomersEvenly() {
+        OrderPartitionRouter router = router(List.of("p0", "p1", "p2"), List.of(), List.of());
+
+        Map<String, Integer> owned = new HashMap<>();
+        CUSTOMERS.forEach(customer -> owned.merge(router.ownerOf(customer).getName(), 1, Integer::sum));
+
+        assertEquals(3, owned.size());
+        owned.values().forEach(count -> assertTrue(count > CUSTOMERS.size() / 5, "owned " + owned));
+    }
+
+    @Test
+    void readsCoverThePreviousOwnerDuringARebalance() {
+        OrderPartitionRouter router = router(List.of("p0", "p1", "p2"), List.of("p0", "p1", "p2"), List.of("p0", "p1"));
+        OrderPartitionRouter previous = router(List.of("p0", "p1", "p2"), List.of("p0", "p1"), List.of());
+
+        for (String customer : CUSTOMERS) {
+            List<String> partitions = router.partitionsFor(customer).stream()
+                    .map(OrderPartition::getName)
+                    .collect(Collectors.toList());
+            String owner = router.ownerOf(customer).getName();
+            String previousOwner = previous.ownerOf(customer).getName();
+            // Writes go to the owner, which is always read first; the previous owner is only added when it differs.
+            assertEquals(owner.equals(previousOwner) ? List.of(owner) : List.of(owner, previousOwner), partitions);
+        }
+    }
+
+    @Test
+    void rejectsARingNamingAnUnknownPartition() {
+        assertThrows(IllegalStateException.class, () -> router(List.of("p0"), List.of("p0", "p9"), List.of()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OrderPartitionRouter router(List<String> names, List<String> ring, List<String> previousRing) {
+        OrderPartitioningProperties properties = new OrderPartitioningProperties();
+        properties.setPartitions(names.stream().map(OrderPartitionRouterTest::partition).collect(Collectors.toList()));
+        properties.setRing(ring);
+        properties.setPreviousRing(previousRing);
+        ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers = mock(ObjectProvider.class);
+        when(customizers.orderedStream()).thenReturn(Stream.empty());
+        return new OrderPartitionRouter(mock(MongoTemplate.class), properties, MongoClientSettings.builder().build(),
+                customizers);
+    }
+
+    private static OrderPartitioningProperties.Partition partition(String name) {
+        OrderPartitioningProperties.Partition partition = new OrderPartitioningProperties.Partition();
+        partition.setName(name);
+        partition.setCollection("orders_" + name);
+        return partition;
+    }
+}
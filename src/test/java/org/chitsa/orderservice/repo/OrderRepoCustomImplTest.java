@@ -0,0 +1,94 @@
+package org.chitsa.orderservice.repo;
+
+import com.mongodb.ReadPreference;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.model.OrderSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Two partitions that both hold orders of the customer, as while a rebalance is under way.
+class OrderRepoCustomImplTest {
+    private static final String CUSTOMER_ID = "customer-1";
+    private static final String COLLECTION = "orders";
+    private static final LocalDateTime EARLIER = LocalDateTime.of(2024, 1, 1, 10, 0);
+    private static final LocalDateTime LATER = EARLIER.plusMinutes(1);
+
+    private final MongoTemplate ownerTemplate = mock(MongoTemplate.class, RETURNS_DEEP_STUBS);
+    private final MongoTemplate previousOwnerTemplate = mock(MongoTemplate.class, RETURNS_DEEP_STUBS);
+    private final OrderPartitionRouter partitionRouter = mock(OrderPartitionRouter.class);
+    private final OrderRepoCustomImpl orderRepo = new OrderRepoCustomImpl(partitionRouter, "UTC");
+
+    OrderRepoCustomImplTest() {
+        when(partitionRouter.partitionsFor(CUSTOMER_ID)).thenReturn(List.of(
+                new OrderPartition("p1", ownerTemplate, COLLECTION),
+                new OrderPartition("p0", previousOwnerTemplate, COLLECTION)));
+    }
+
+    @Test
+    void mergesPagesNewestFirstWithTiesBrokenById() {
+        // Each partition returns its page newest first; "b" was copied and exists in both.
+        when(findAll(ownerTemplate)).thenReturn(List.of(
+                summary("c", LATER), summary("b", LATER), summary("e", EARLIER)));
+        when(findAll(previousOwnerTemplate)).thenReturn(List.of(
+                summary("b", LATER), summary("a", LATER), summary("d", EARLIER)));
+
+        List<OrderSummary> page = orderRepo.findOrderSummariesPageByCustomerId(CUSTOMER_ID, null, null, null, 4,
+                ReadPreference.primary());
+
+        assertEquals(List.of("c", "b", "a", "e"), ids(page));
+    }
+
+    @Test
+    void mergesStreamsOldestFirstAndDropsCopies() {
+        AtomicInteger closed = new AtomicInteger();
+        when(findStream(ownerTemplate)).thenReturn(Stream.of(
+                summary("a", EARLIER), summary("c", EARLIER), summary("d", LATER)
+        ).onClose(closed::incrementAndGet));
+        when(findStream(previousOwnerTemplate)).thenReturn(Stream.of(
+                summary("b", EARLIER), summary("c", EARLIER), summary("e", LATER)
+        ).onClose(closed::incrementAndGet));
+
+        List<String> merged;
+        try (Stream<OrderSummary> orders = orderRepo.streamOrderSummariesByCustomerId(CUSTOMER_ID, 100,
+                ReadPreference.primary())) {
+            merged = ids(orders.collect(Collectors.toList()));
+        }
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), merged);
+        assertEquals(2, closed.get());
+    }
+
+    private static List<OrderSummary> findAll(MongoTemplate template) {
+        return template.query(Order.class).inCollection(COLLECTION).as(OrderSummary.class).matching(any(Query.class)).all();
+    }
+
+    private static Stream<OrderSummary> findStream(MongoTemplate template) {
+        return template.query(Order.class).inCollection(COLLECTION).as(OrderSummary.class).matching(any(Query.class)).stream();
+    }
+
+    private static OrderSummary summary(String id, LocalDateTime createdAt) {
+        OrderSummary summary = new OrderSummary();
+        ReflectionTestUtils.setField(summary, "id", id);
+        ReflectionTestUtils.setField(summary, "customerId", CUSTOMER_ID);
+        ReflectionTestUtils.setField(summary, "createdAt", createdAt);
+        return summary;
+    }
+
+    private static List<String> ids(List<OrderSummary> summaries) {
+        return summaries.stream().map(OrderSummary::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,67 @@
+package org.chitsa.orderservice.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingJwtDecoderTest {
+
+    @Test
+    void decodesEachValidTokenOnce() {
+        AtomicInteger decodeCalls = new AtomicInteger();
+        CachingJwtDecoder decoder = new CachingJwtDecoder(token -> {
+            decodeCalls.incrementAndGet();
+            return jwt(token, Instant.now().plusSeconds(300));
+        }, 100);
+
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+        decoder.decode("token-b");
+
+        assertSame(first, second);
+        assertEquals(2, decodeCalls.get());
+    }
+
+    @Test
+    void doesNotServeExpiredTokensFromTheCache() {
+        AtomicInteger decodeCalls = new AtomicInteger();
+        CachingJwtDecoder decoder = new CachingJwtDecoder(token -> {
+            decodeCalls.incrementAndGet();
+            return jwt(token, Instant.now().minusSeconds(1));
+        }, 100);
+
+        decoder.decode("token-a");
+        decoder.decode("token-a");
+
+        assertEquals(2, decodeCalls.get());
+    }
+
+    @Test
+    void doesNotCacheRejectedTokens() {
+        AtomicInteger decodeCalls = new AtomicInteger();
+        CachingJwtDecoder decoder = new CachingJwtDecoder(token -> {
+            decodeCalls.incrementAndGet();
+            throw new BadJwtException("invalid signature");
+        }, 100);
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token-a"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("token-a"));
+        assertEquals(2, decodeCalls.get());
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user_1")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
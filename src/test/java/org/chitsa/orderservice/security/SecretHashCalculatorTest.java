@@ -0,0 +1,28 @@
+package org.chitsa.orderservice.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SecretHashCalculatorTest {
+
+    @Test
+    void matchesCognitoSecretHash() throws Exception {
+        SecretHashCalculator calculator = new SecretHashCalculator("client-id", "client-secret");
+
+        assertEquals(expectedHash("client-secret", "user_1", "client-id"), calculator.calculate("user_1"));
+        assertEquals(expectedHash("client-secret", "user_2", "client-id"), calculator.calculate("user_2"));
+    }
+
+    private static String expectedHash(String secret, String username, String clientId) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(mac.doFinal(clientId.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,147 @@
+package org.chitsa.orderservice.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chitsa.orderservice.dto.OrderItemDto;
+import org.chitsa.orderservice.dto.OrderRequestDto;
+import org.chitsa.orderservice.dto.OrderResponseDto;
+import org.chitsa.orderservice.exception.IdempotencyKeyConflictException;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.IdempotencyRecord;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.repo.CustomerOrderVersionRepo;
+import org.chitsa.orderservice.repo.IdempotencyRecordRepo;
+import org.chitsa.orderservice.repo.OrderReadPreferences;
+import org.chitsa.orderservice.repo.OrderRepo;
+import org.chitsa.orderservice.validator.OrderValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceImplIdempotencyTest {
+    private static final String CUSTOMER_ID = "customer-1";
+    private static final String KEY = "key-1";
+    private static final String RECORD_ID = CUSTOMER_ID + ":" + KEY;
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    private final OrderRepo orderRepo = mock(OrderRepo.class);
+    private final IdempotencyRecordRepo idempotencyRecordRepo = mock(IdempotencyRecordRepo.class);
+    private final OrderWriter orderWriter = mock(OrderWriter.class);
+    private final OrderDtoMapper orderDtoMapper = new OrderDtoMapper();
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceImpl(orderRepo, mock(CustomerOrderVersionRepo.class), orderDtoMapper,
+                new OrderValidator(new SimpleMeterRegistry()), idempotencyRecordRepo, orderWriter,
+                mock(OrderReadPreferences.class));
+        ReflectionTestUtils.setField(orderService, "idempotencyPendingLease", LEASE);
+        when(idempotencyRecordRepo.findById(RECORD_ID)).thenReturn(Optional.empty());
+        when(idempotencyRecordRepo.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderWriter.insert(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void replaysCompletedRequestWithoutWritingAgain() {
+        OrderResponseDto created = orderService.createOrder(request(2), CUSTOMER_ID, KEY);
+        when(idempotencyRecordRepo.findById(RECORD_ID)).thenReturn(Optional.of(savedRecord()));
+
+        OrderResponseDto replayed = orderService.createOrder(request(2), CUSTOMER_ID, KEY);
+
+        assertSame(created, replayed);
+        verify(orderWriter, times(1)).insert(any(Order.class));
+    }
+
+    @Test
+    void rejectsKeyReusedWithDifferentBody() {
+        orderService.createOrder(request(2), CUSTOMER_ID, KEY);
+        when(idempotencyRecordRepo.findById(RECORD_ID)).thenReturn(Optional.of(savedRecord()));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(request(3), CUSTOMER_ID, KEY));
+        verify(orderWriter, times(1)).insert(any(Order.class));
+    }
+
+    @Test
+    void rejectsConcurrentRequestWhileKeyIsHeld() {
+        IdempotencyRecord held = pendingRecord(Instant.now().plus(LEASE));
+        when(idempotencyRecordRepo.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("claimed"));
+        when(idempotencyRecordRepo.findById(RECORD_ID)).thenReturn(Optional.empty(), Optional.of(held));
+        when(idempotencyRecordRepo.takeOverExpired(RECORD_ID, LEASE)).thenReturn(Optional.empty());
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> orderService.createOrder(request(2), CUSTOMER_ID, KEY));
+        verify(orderWriter, never()).insert(any(Order.class));
+    }
+
+    @Test
+    void takeOverOfExpiredClaimFindsOrderWrittenByEarlierHolder() {
+        IdempotencyRecord expired = pendingRecord(Instant.now().minusSeconds(1));
+        when(idempotencyRecordRepo.findById(RECORD_ID)).thenReturn(Optional.of(expired));
+        when(idempotencyRecordRepo.takeOverExpired(RECORD_ID, LEASE)).thenReturn(Optional.of(expired));
+        when(orderWriter.insert(any(Order.class))).thenThrow(new DuplicateKeyException("exists"));
+        Order written = orderDtoMapper.toOrder(request(2), CUSTOMER_ID);
+        when(orderRepo.findById(anyString())).thenAnswer(invocation -> {
+            written.setId(invocation.getArgument(0));
+            return Optional.of(written);
+        });
+
+        OrderResponseDto response = orderService.createOrder(request(2), CUSTOMER_ID, KEY);
+
+        ArgumentCaptor<Order> attempted = ArgumentCaptor.forClass(Order.class);
+        verify(orderWriter).insert(attempted.capture());
+        assertEquals(attempted.getValue().getId(), response.getOrderId());
+        assertSame(response, savedRecord().getResponse());
+    }
+
+    @Test
+    void expiresClaimWhenOrderWasNotWritten() {
+        when(orderWriter.insert(any(Order.class))).thenThrow(new DataAccessResourceFailureException("unavailable"));
+        when(orderRepo.findById(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrder(request(2), CUSTOMER_ID, KEY));
+        verify(idempotencyRecordRepo).expireLease(RECORD_ID);
+    }
+
+    @Test
+    void keepsClaimWhenOrderWasWrittenButRecordWasNotCompleted() {
+        when(idempotencyRecordRepo.save(any(IdempotencyRecord.class))).thenThrow(new DataAccessResourceFailureException("unavailable"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderService.createOrder(request(2), CUSTOMER_ID, KEY));
+        verify(idempotencyRecordRepo, never()).expireLease(eq(RECORD_ID));
+        verify(idempotencyRecordRepo, never()).deleteById(RECORD_ID);
+    }
+
+    private IdempotencyRecord savedRecord() {
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepo).save(saved.capture());
+        return saved.getValue();
+    }
+
+    private static IdempotencyRecord pendingRecord(Instant leaseUntil) {
+        IdempotencyRecord claimed = IdempotencyRecord.pending(RECORD_ID, OrderServiceImpl.hashOrderRequest(request(2)), LEASE);
+        return new IdempotencyRecord(RECORD_ID, claimed.getRequestHash(), IdempotencyRecord.Status.PENDING, null,
+                claimed.getCreatedAt(), leaseUntil);
+    }
+
+    private static OrderRequestDto request(int quantity) {
+        return new OrderRequestDto(CUSTOMER_ID, List.of(new OrderItemDto("Widget", quantity, 9.99)), null);
+    }
+}
@@ -0,0 +1,262 @@
+package org.chitsa.orderservice.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.chitsa.orderservice.mapping.OrderDtoMapper;
+import org.chitsa.orderservice.model.Order;
+import org.chitsa.orderservice.outbox.OrderEventOutbox;
+import org.chitsa.orderservice.repo.CustomerOrderVersionRepo;
+import org.chitsa.orderservice.repo.OrderRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Each caller runs on its own thread so the flusher can gather them into one batch; the long max delay means a batch is
+// only written once it is full.
+class OrderWriterTest {
+    private static final int BATCH_SIZE = 3;
+    private static final Duration MAX_DELAY = Duration.ofSeconds(30);
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final String DUPLICATE_ERROR = "E11000 duplicate key";
+
+    private final OrderRepo orderRepo = mock(OrderRepo.class);
+    private final CustomerOrderVersionRepo customerOrderVersionRepo = mock(CustomerOrderVersionRepo.class);
+    private final OrderEventOutbox orderEventOutbox = mock(OrderEventOutbox.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Order first = order("customer-1");
+    private final Order second = order("customer-2");
+    private final Order third = order("customer-3");
+    private final List<Thread> callers = new ArrayList<>();
+    private OrderWriter orderWriter;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (orderWriter != null) {
+            orderWriter.stop();
+        }
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+    }
+
+    @Test
+    void groupsConcurrentInsertsIntoOneBatch() throws Exception {
+        startWriter(false, BATCH_SIZE);
+        when(orderRepo.insertAllUnordered(anyList())).thenReturn(Map.of());
+
+        CompletableFuture<Order> firstOutcome = insertAsync(first);
+        CompletableFuture<Order> secondOutcome = insertAsync(second);
+        CompletableFuture<Order> thirdOutcome = insertAsync(third);
+
+        assertSame(first, await(firstOutcome));
+        assertSame(second, await(secondOutcome));
+        assertSame(third, await(thirdOutcome));
+        verify(orderRepo, times(1)).insertAllUnordered(anyList());
+        verify(orderRepo, never()).save(any(Order.class));
+        assertEquals(BATCH_SIZE, meterRegistry.summary("orders.group-commit.batch.size").totalAmount());
+        verify(customerOrderVersionRepo).increment("customer-1");
+        verify(customerOrderVersionRepo).increment("customer-2");
+        verify(customerOrderVersionRepo).increment("customer-3");
+    }
+
+    @Test
+    void failsOnlyTheCallerWhoseOrderFailedInTheBatch() throws Exception {
+        startWriter(false, BATCH_SIZE);
+        when(orderRepo.insertAllUnordered(anyList())).thenAnswer(invocation -> secondFails(invocation.getArgument(0)));
+
+        CompletableFuture<Order> firstOutcome = insertAsync(first);
+        CompletableFuture<Order> secondOutcome = insertAsync(second);
+        CompletableFuture<Order> thirdOutcome = insertAsync(third);
+
+        assertSame(first, await(firstOutcome));
+        assertSame(third, await(thirdOutcome));
+        Throwable failure = awaitFailure(secondOutcome);
+        assertInstanceOf(DataIntegrityViolationException.class, failure);
+        assertTrue(failure.getMessage().contains(DUPLICATE_ERROR));
+        verify(customerOrderVersionRepo, never()).increment("customer-2");
+    }
+
+    @Test
+    void retriesEachOrderAloneWhenTheOutboxTransactionAborts() throws Exception {
+        startWriter(true, BATCH_SIZE);
+        when(orderRepo.insertAllUnordered(anyList())).thenAnswer(invocation -> secondFails(invocation.getArgument(0)));
+        when(orderRepo.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order == second) {
+                throw new DuplicateKeyException(DUPLICATE_ERROR);
+            }
+            return order;
+        });
+
+        CompletableFuture<Order> firstOutcome = insertAsync(first);
+        CompletableFuture<Order> secondOutcome = insertAsync(second);
+        CompletableFuture<Order> thirdOutcome = insertAsync(third);
+
+        assertSame(first, await(firstOutcome));
+        assertSame(third, await(thirdOutcome));
+        assertInstanceOf(DuplicateKeyException.class, awaitFailure(secondOutcome));
+        verify(orderRepo, times(BATCH_SIZE)).save(any(Order.class));
+        verify(customerOrderVersionRepo).increment("customer-1");
+        verify(customerOrderVersionRepo).increment("customer-3");
+        verify(customerOrderVersionRepo, never()).increment("customer-2");
+    }
+
+    @Test
+    void failsTheWholeBatchWhenItFailsWithoutTheOutbox() throws Exception {
+        startWriter(false, BATCH_SIZE);
+        RuntimeException outage = new IllegalStateException("primary unavailable");
+        when(orderRepo.insertAllUnordered(anyList())).thenThrow(outage);
+
+        CompletableFuture<Order> firstOutcome = insertAsync(first);
+        CompletableFuture<Order> secondOutcome = insertAsync(second);
+        CompletableFuture<Order> thirdOutcome = insertAsync(third);
+
+        assertSame(outage, awaitFailure(firstOutcome));
+        assertSame(outage, awaitFailure(secondOutcome));
+        assertSame(outage, awaitFailure(thirdOutcome));
+        verify(orderRepo, never()).save(any(Order.class));
+    }
+
+    @Test
+    void failsQueuedInsertsOnShutdownAndWritesLaterOnesDirectly() throws Exception {
+        startWriter(false, 1);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the flusher inside the first batch and keeps the interrupt from stop() for the loop to see.
+        when(orderRepo.insertAllUnordered(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return Map.of();
+        });
+        when(orderRepo.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CompletableFuture<Order> inFlight = insertAsync(first);
+        assertTrue(flushing.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<Order> queued = insertAsync(second);
+        awaitQueued(callers.get(1));
+        orderWriter.stop();
+        release.countDown();
+
+        assertSame(first, await(inFlight));
+        assertInstanceOf(IllegalStateException.class, awaitFailure(queued));
+        assertSame(third, orderWriter.insert(third));
+        verify(orderRepo).save(third);
+        verify(orderRepo, never()).save(second);
+    }
+
+    @Test
+    void insertAllFallsBackToSingleInsertsWhenTheOutboxTransactionAborts() {
+        orderWriter = writer(true, BATCH_SIZE);
+        outboxRunsWrites();
+        when(orderRepo.insertAllUnordered(anyList())).thenReturn(Map.of(1, DUPLICATE_ERROR));
+        when(orderRepo.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            if (order == second) {
+                throw new DuplicateKeyException(DUPLICATE_ERROR);
+            }
+            return order;
+        });
+
+        Map<Integer, String> errors = orderWriter.insertAll(List.of(first, second, third));
+
+        assertEquals(List.of(1), List.copyOf(errors.keySet()));
+        verify(orderRepo, times(3)).save(any(Order.class));
+    }
+
+    private void startWriter(boolean outboxEnabled, int maxBatchSize) {
+        orderWriter = writer(outboxEnabled, maxBatchSize);
+        outboxRunsWrites();
+        orderWriter.start();
+    }
+
+    private OrderWriter writer(boolean outboxEnabled, int maxBatchSize) {
+        return new OrderWriter(orderRepo, customerOrderVersionRepo, mock(CacheManager.class), orderEventOutbox,
+                new OrderDtoMapper(), outboxEnabled, true, maxBatchSize, MAX_DELAY, 100, meterRegistry);
+    }
+
+    private void outboxRunsWrites() {
+        when(orderEventOutbox.execute(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(orderEventOutbox).executeWithoutResult(any());
+    }
+
+    private CompletableFuture<Order> insertAsync(Order order) {
+        CompletableFuture<Order> outcome = new CompletableFuture<>();
+        callers.add(Thread.ofPlatform().start(() -> {
+            try {
+                outcome.complete(orderWriter.insert(order));
+            } catch (RuntimeException e) {
+                outcome.completeExceptionally(e);
+            }
+        }));
+        return outcome;
+    }
+
+    // The caller is parked on its result only after its insert is on the queue and past the running check.
+    private void awaitQueued(Thread caller) throws InterruptedException {
+        BlockingQueue<?> pendingInserts =
+                (BlockingQueue<?>) ReflectionTestUtils.getField(orderWriter, "pendingInserts");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (pendingInserts.isEmpty() || caller.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "insert was not queued");
+            Thread.sleep(1);
+        }
+    }
+
+    private Map<Integer, String> secondFails(List<Order> orders) {
+        return Map.of(orders.indexOf(second), DUPLICATE_ERROR);
+    }
+
+    private static Order await(CompletableFuture<Order> outcome) throws Exception {
+        return outcome.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static Throwable awaitFailure(CompletableFuture<Order> outcome) {
+        return assertThrows(ExecutionException.class, () -> await(outcome)).getCause();
+    }
+
+    private static Order order(String customerId) {
+        return new Order(customerId, List.of(), BigDecimal.ZERO);
+    }
+}